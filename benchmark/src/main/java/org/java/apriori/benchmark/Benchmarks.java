@@ -0,0 +1,56 @@
+/*
+ *    Benchmarks.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori.benchmark;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the options of the JMH command line, adding the GC
+ * profiler so that the allocation rate of each phase is reported with its
+ * throughput.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class Benchmarks {
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args
+	 *            the options of the JMH command line
+	 * @throws CommandLineOptionException
+	 *             if the options are malformed
+	 * @throws RunnerException
+	 *             if a benchmark fails
+	 * @throws IOException
+	 *             if the benchmarks can't be listed
+	 */
+	public static void main(String[] args) throws CommandLineOptionException,
+			RunnerException, IOException {
+
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		if (commandLine.shouldHelp() || commandLine.shouldList()
+				|| commandLine.shouldListProfilers()) {
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+
+		Options options = new OptionsBuilder().parent(commandLine)
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ *    Datasets.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.java.apriori.Generator;
+
+/**
+ * Resolves the datasets of the benchmarks. A sample is read from the samples
+ * directory, given by the property apriori.samples. A dataset named
+ * synthetic-N is N instances written once by the generator with a fixed seed
+ * in the temporary directory, so every run mines the same instances. The name
+ * of the file holds all the parameters of the generator.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class Datasets {
+
+	/** The prefix of the names of the synthetic datasets. */
+	public static final String SYNTHETIC = "synthetic-";
+
+	/** The number of attributes of the synthetic datasets. */
+	public static final int NUM_ATTRIBUTES = 20;
+
+	/** The number of values of each attribute of the synthetic datasets. */
+	public static final int CARDINALITY = 20;
+
+	/** The skew of the values of the synthetic datasets. */
+	public static final double SKEW = 1.0;
+
+	/** The number of patterns of the synthetic datasets. */
+	public static final int NUM_PATTERNS = 100;
+
+	/** The average pattern length of the synthetic datasets. */
+	public static final double PATTERN_LENGTH = 4;
+
+	/** The seed of the synthetic datasets. */
+	public static final long SEED = 1;
+
+	/**
+	 * Returns the file of a dataset, generating it if needed.
+	 * 
+	 * @param name
+	 *            the name of a sample without extension, or synthetic-N
+	 * @return the file of the dataset
+	 * @throws IOException
+	 *             if the synthetic dataset can't be written
+	 */
+	public static synchronized File file(String name) throws IOException {
+
+		if (!name.startsWith(SYNTHETIC)) {
+			File samples = new File(System.getProperty("apriori.samples",
+					"../samples"));
+			if (!samples.isDirectory())
+				samples = new File("samples");
+			return new File(samples, name + ".txt");
+		}
+
+		long numInstances = Long.parseLong(name.substring(SYNTHETIC.length()));
+		// all the parameters are in the name, so a change writes a new file
+		File file = new File(System.getProperty("java.io.tmpdir"),
+				"myapriori-" + name + "-" + NUM_ATTRIBUTES + "-" + CARDINALITY
+						+ "-" + SKEW + "-" + NUM_PATTERNS + "-" + PATTERN_LENGTH
+						+ "-" + SEED + ".txt");
+		if (file.isFile())
+			return file;
+
+		File part = new File(file.getPath() + ".part");
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(part), "UTF-8"), 1 << 16);
+		try {
+			new Generator(NUM_ATTRIBUTES, CARDINALITY, SKEW, NUM_PATTERNS,
+					PATTERN_LENGTH, SEED).write(writer, numInstances);
+		} finally {
+			writer.close();
+		}
+		if (!part.renameTo(file))
+			throw new IOException("Can't rename " + part + " to " + file);
+
+		return file;
+	}
+
+}
@@ -0,0 +1,88 @@
+/*
+ *    KItemSetBenchmark.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori.benchmark;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.java.apriori.Apriori;
+import org.java.apriori.LargeItemSet;
+import org.java.apriori.TxtReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the k-itemset phase: finding all sets of large items with each
+ * engine, from a dataset read and encoded beforehand.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KItemSetBenchmark {
+
+	/** The dataset. */
+	@Param({ "breast-cancer", "person_trait-1", "synthetic-10000",
+			"synthetic-100000", "synthetic-1000000" })
+	public String dataset;
+
+	/** The minimum support. */
+	@Param({ "0.2", "0.05" })
+	public double support;
+
+	/** The engine. */
+	@Param({ "0", "1", "2" })
+	public int engine;
+
+	/** The miner of the dataset. */
+	private Apriori m_Apriori;
+
+	/**
+	 * Reads the dataset and sets the options.
+	 * 
+	 * @throws IOException
+	 *             if the dataset can't be generated
+	 */
+	@Setup
+	public void setup() throws IOException {
+
+		m_Apriori = new Apriori(new TxtReader(Datasets.file(dataset)));
+		m_Apriori.setOptions(new double[] { support, 0.9 });
+		m_Apriori.setEngine(engine);
+		// encodes the instances pretreated once, outside the benchmark
+		m_Apriori.findLargeItemSets();
+	}
+
+	/**
+	 * Finds all sets of large items.
+	 * 
+	 * @return the set of all sets of large items
+	 */
+	@Benchmark
+	public Vector<LargeItemSet> findLargeItemSets() {
+
+		m_Apriori.findLargeItemSets();
+
+		return m_Apriori.getLargeItemSets();
+	}
+
+}
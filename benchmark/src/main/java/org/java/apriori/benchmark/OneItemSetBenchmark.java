@@ -0,0 +1,80 @@
+/*
+ *    OneItemSetBenchmark.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.java.apriori.LargeItemSet;
+import org.java.apriori.TxtReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the 1-itemset phase: finding the 1-largeItems from the weights of
+ * the attributes' values of a dataset read beforehand.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OneItemSetBenchmark {
+
+	/** The dataset. */
+	@Param({ "breast-cancer", "person_trait-1", "synthetic-10000",
+			"synthetic-100000", "synthetic-1000000" })
+	public String dataset;
+
+	/** The minimum support. */
+	@Param({ "0.2", "0.05" })
+	public double support;
+
+	/** The reader of the dataset. */
+	private TxtReader m_TxtReader;
+
+	/** The minimum weight. */
+	private int m_NumSupport;
+
+	/**
+	 * Reads the dataset.
+	 * 
+	 * @throws IOException
+	 *             if the dataset can't be generated
+	 */
+	@Setup
+	public void setup() throws IOException {
+
+		m_TxtReader = new TxtReader(Datasets.file(dataset));
+		m_NumSupport = (int) (support * m_TxtReader.numInstances());
+	}
+
+	/**
+	 * Finds the 1-largeItems.
+	 * 
+	 * @return the set of 1-largeItems
+	 */
+	@Benchmark
+	public LargeItemSet findOneLargeItemSet() {
+
+		return new LargeItemSet(m_TxtReader.getAttributes(), null, m_NumSupport);
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ *    ParseBenchmark.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.java.apriori.TxtReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the parse phase: reading and encoding a TXT file with each mode
+ * of the reader.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+	/** The dataset. */
+	@Param({ "breast-cancer", "person_trait-1", "synthetic-10000",
+			"synthetic-100000", "synthetic-1000000" })
+	public String dataset;
+
+	/** The mode of the reader. */
+	@Param({ "0", "1", "2" })
+	public int mode;
+
+	/** The file of the dataset. */
+	private File m_File;
+
+	/**
+	 * Resolves the file of the dataset.
+	 * 
+	 * @throws IOException
+	 *             if the dataset can't be generated
+	 */
+	@Setup
+	public void setup() throws IOException {
+
+		m_File = Datasets.file(dataset);
+	}
+
+	/**
+	 * Reads the dataset.
+	 * 
+	 * @return the reader
+	 */
+	@Benchmark
+	public TxtReader parse() {
+
+		return new TxtReader(m_File, mode);
+	}
+
+}
@@ -0,0 +1,86 @@
+/*
+ *    RuleBenchmark.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori.benchmark;
+
+import java.io.IOException;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.java.apriori.Apriori;
+import org.java.apriori.Rule;
+import org.java.apriori.TxtReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rule generation phase: finding the association rules of the
+ * sets of large items found beforehand.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+
+	/** The dataset. */
+	@Param({ "breast-cancer", "person_trait-1", "synthetic-10000",
+			"synthetic-100000", "synthetic-1000000" })
+	public String dataset;
+
+	/** The minimum support. */
+	@Param({ "0.2", "0.05" })
+	public double support;
+
+	/** The minimum confidence. */
+	@Param({ "0.9", "0.5" })
+	public double confidence;
+
+	/** The miner of the dataset. */
+	private Apriori m_Apriori;
+
+	/**
+	 * Reads the dataset and finds the sets of large items.
+	 * 
+	 * @throws IOException
+	 *             if the dataset can't be generated
+	 */
+	@Setup
+	public void setup() throws IOException {
+
+		m_Apriori = new Apriori(new TxtReader(Datasets.file(dataset)));
+		m_Apriori.setOptions(new double[] { support, confidence });
+		m_Apriori.findLargeItemSets();
+	}
+
+	/**
+	 * Finds the association rules.
+	 * 
+	 * @return the rules sorted
+	 */
+	@Benchmark
+	public Vector<Rule> findAssociationsRules() {
+
+		m_Apriori.findAssociationsRules();
+
+		return m_Apriori.getRuleSet();
+	}
+
+}
@@ -7,7 +7,15 @@
 package org.java.apriori;
 
 import java.io.File;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.PriorityQueue;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
 
 import org.java.apriori.LargeItemSet.LargeItem;
 import org.java.apriori.TxtReader.Attribute;
@@ -20,6 +28,27 @@ import org.java.apriori.TxtReader.Attribute;
  */
 public class Apriori {
 
+	/** The engine finding the large itemsets level by level. */
+	public static final int ENGINE_APRIORI = 0;
+
+	/** The engine finding the large itemsets with TID-bitsets (Eclat). */
+	public static final int ENGINE_ECLAT = 1;
+
+	/** The engine finding the large itemsets with an FP-tree (FP-Growth). */
+	public static final int ENGINE_FPGROWTH = 2;
+
+	/** Keeps all large itemsets. */
+	public static final int ITEMSETS_ALL = 0;
+
+	/** Keeps the closed large itemsets, no other has the same weight. */
+	public static final int ITEMSETS_CLOSED = 1;
+
+	/** Keeps the maximal large itemsets, no other contains them. */
+	public static final int ITEMSETS_MAXIMAL = 2;
+
+	/** The default memory budget of a partition, in bytes. */
+	public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
 	/** The reader of an TXT file. */
 	private TxtReader m_TxtReader = null;
 
@@ -29,17 +58,96 @@ public class Apriori {
 	/** The pretreat options. */
 	private String[] m_PretreatOptions;
 
+	/** The pretreat options compiled. */
+	private Pretreat[] m_Pretreats;
+
 	/** The minimum support. */
 	private double m_minSupport;
 
 	/** The minimum confidence. */
 	private double m_minConfidence;
 
+	/** The engine finding the large itemsets. */
+	private int m_Engine = ENGINE_APRIORI;
+
+	/** The large itemsets kept. */
+	private int m_ItemSets = ITEMSETS_ALL;
+
+	/** The number of threads counting the candidates. */
+	private int m_Parallelism;
+
+	/** The pool of threads counting the candidates. */
+	private ForkJoinPool m_Pool = null;
+
+	/** The memory budget of a partition of instances read by partitions. */
+	private long m_MemoryBudget = DEFAULT_MEMORY_BUDGET;
+
+	/** The attributes pretreated, kept until the options change. */
+	private Vector<Attribute> m_PretreatAttributes = null;
+
+	/** The maps from the codes of the values to the codes pretreated. */
+	private int[][] m_CodeMaps = null;
+
+	/** The instances pretreated, kept until the options change. */
+	private EncodedInstances m_PretreatInstances = null;
+
 	/** The set of all sets of itemsets L. */
 	private Vector<LargeItemSet> m_Ls = null;
 
+	/**
+	 * The number of instances the itemsets L were found for, -1 if the
+	 * options have changed since.
+	 */
+	private int m_LsNumInstances = -1;
+
+	/** The maximum number of rules kept, 0 to keep all. */
+	private int m_MaxRules = 0;
+
 	/** The set of rules sorted. */
-	private Vector<Object> m_sortedRuleSet = null;
+	private Vector<Rule> m_sortedRuleSet = null;
+
+	/** The listener of the progress of the mining, null for none. */
+	private MiningListener m_Listener = null;
+
+	/** The token cancelling the mining, null for none. */
+	private CancellationToken m_Token = null;
+
+	/**
+	 * A rule of a large item before it is kept, with the positions of its
+	 * antecedent's items in the large item.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class ItemRule {
+
+		/** The positions of the antecedent's items in the large item. */
+		private BitSet m_Bits;
+
+		/** The antecedent. */
+		private LargeItem m_Antecedent;
+
+		/** The confidence. */
+		private double m_Confidence;
+
+		/**
+		 * Creates a rule of a large item.
+		 * 
+		 * @param bits
+		 *            the positions of the antecedent's items
+		 * @param antecedent
+		 *            the antecedent
+		 * @param confidence
+		 *            the confidence
+		 */
+		private ItemRule(BitSet bits, LargeItem antecedent, double confidence) {
+
+			m_Bits = bits;
+			m_Antecedent = antecedent;
+			m_Confidence = confidence;
+		}
+
+	}
 
 	/**
 	 * Creates an Apriori class.
@@ -47,7 +155,7 @@ public class Apriori {
 	public Apriori() {
 
 		m_Ls = new Vector<LargeItemSet>();
-		m_sortedRuleSet = new Vector<Object>();
+		m_sortedRuleSet = new Vector<Rule>();
 		setOptions(null);
 	}
 
@@ -65,22 +173,171 @@ public class Apriori {
 	}
 
 	/**
-	 * Sets the mining options. The options contain the minimum support and the
-	 * minimum confidence.
+	 * Creates an Apriori class from an TXT file or a snapshot.
+	 * 
+	 * @param file
+	 *            the TXT file or the snapshot
+	 */
+	public Apriori(File file) {
+
+		this(new TxtReader(file));
+	}
+
+	/**
+	 * Sets the mining options. The options contain the minimum support, the
+	 * minimum confidence and optionally the number of threads counting the
+	 * candidates, which is the number of processors by default.
 	 * 
 	 * @param options
-	 *            the mining options contain the minimum support and the minimum
-	 *            confidence
+	 *            the mining options contain the minimum support, the minimum
+	 *            confidence and optionally the number of threads
 	 */
 	public void setOptions(double[] options) {
 
-		if (options != null && options.length == 2) {
+		if (options != null && options.length >= 2) {
 			m_minSupport = options[0];
 			m_minConfidence = options[1];
+			if (options.length >= 3 && options[2] >= 1)
+				m_Parallelism = (int) options[2];
 		} else {
 			m_minSupport = 0.2;
 			m_minConfidence = 0.9;
+			m_Parallelism = Runtime.getRuntime().availableProcessors();
 		}
+		m_LsNumInstances = -1;
+	}
+
+	/**
+	 * Sets the engine finding the large itemsets.
+	 * 
+	 * @param engine
+	 *            the engine, ENGINE_APRIORI, ENGINE_ECLAT or ENGINE_FPGROWTH
+	 */
+	public void setEngine(int engine) {
+
+		m_Engine = engine;
+	}
+
+	/**
+	 * Returns the engine finding the large itemsets.
+	 * 
+	 * @return the engine
+	 */
+	public int getEngine() {
+
+		return m_Engine;
+	}
+
+	/**
+	 * Sets the large itemsets kept. The closed large itemsets hold the weights
+	 * of all large itemsets, the maximal ones only the large itemsets.
+	 * 
+	 * @param itemSets
+	 *            the large itemsets kept, ITEMSETS_ALL, ITEMSETS_CLOSED or
+	 *            ITEMSETS_MAXIMAL
+	 */
+	public void setItemSets(int itemSets) {
+
+		m_ItemSets = itemSets;
+		m_LsNumInstances = -1;
+	}
+
+	/**
+	 * Returns the large itemsets kept.
+	 * 
+	 * @return the large itemsets kept
+	 */
+	public int getItemSets() {
+
+		return m_ItemSets;
+	}
+
+	/**
+	 * Sets the maximum number of rules kept, the rules of highest confidence.
+	 * 
+	 * @param maxRules
+	 *            the maximum number of rules, 0 to keep all
+	 */
+	public void setMaxRules(int maxRules) {
+
+		m_MaxRules = Math.max(maxRules, 0);
+	}
+
+	/**
+	 * Returns the maximum number of rules kept.
+	 * 
+	 * @return the maximum number of rules, 0 to keep all
+	 */
+	public int getMaxRules() {
+
+		return m_MaxRules;
+	}
+
+	/**
+	 * Sets the listener of the progress of the mining.
+	 * 
+	 * @param listener
+	 *            the listener, null for none
+	 */
+	public void setMiningListener(MiningListener listener) {
+
+		m_Listener = listener;
+	}
+
+	/**
+	 * Returns the listener of the progress of the mining.
+	 * 
+	 * @return the listener, null for none
+	 */
+	public MiningListener getMiningListener() {
+
+		return m_Listener;
+	}
+
+	/**
+	 * Sets the token cancelling the mining. Once the token is cancelled, the
+	 * mining running throws a CancellationException and its large itemsets or
+	 * rules are removed. A reader in the partitioned mode cancelled during its
+	 * first pass through the partitions can't be mined again.
+	 * 
+	 * @param token
+	 *            the token, null for none
+	 */
+	public void setCancellationToken(CancellationToken token) {
+
+		m_Token = token;
+	}
+
+	/**
+	 * Returns the token cancelling the mining.
+	 * 
+	 * @return the token, null for none
+	 */
+	public CancellationToken getCancellationToken() {
+
+		return m_Token;
+	}
+
+	/**
+	 * Sets the memory budget of a partition, for the instances read by
+	 * partitions.
+	 * 
+	 * @param memoryBudget
+	 *            the number of bytes for the columns of a partition
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+
+		m_MemoryBudget = memoryBudget;
+	}
+
+	/**
+	 * Returns the memory budget of a partition.
+	 * 
+	 * @return the number of bytes for the columns of a partition
+	 */
+	public long getMemoryBudget() {
+
+		return m_MemoryBudget;
 	}
 
 	/**
@@ -99,101 +356,506 @@ public class Apriori {
 			for (int i = 0; i < m_ChooseAttributes.length; i++)
 				m_ChooseAttributes[i] = true;
 		}
+		m_PretreatInstances = null;
+		m_LsNumInstances = -1;
 	}
 
 	/**
-	 * Sets the pretreat options.
+	 * Sets the pretreat options. The options are compiled once here.
 	 * 
 	 * @param pretreatOptions
 	 *            the pretreat options
+	 * @throws IllegalArgumentException
+	 *             if a pretreat option is malformed
 	 */
 	public void setPretreatOptions(String[] pretreatOptions) {
 
 		if (pretreatOptions != null
-				&& pretreatOptions.length == m_TxtReader.numAttributes())
+				&& pretreatOptions.length == m_TxtReader.numAttributes()) {
+			Pretreat[] pretreats = new Pretreat[pretreatOptions.length];
+			for (int i = 0; i < pretreatOptions.length; i++)
+				pretreats[i] = Pretreat.compile(pretreatOptions[i]);
+
 			m_PretreatOptions = pretreatOptions;
+			m_Pretreats = pretreats;
+			m_PretreatAttributes = null;
+			m_PretreatInstances = null;
+			m_LsNumInstances = -1;
+		}
 	}
 
 	/**
-	 * Method that finds all large itemsets for the given set of instances.
+	 * Method that finds all large itemsets for the given set of instances. The
+	 * instances of a reader in the partitioned mode are mined by partitions
+	 * with SON.
+	 * 
+	 * @throws CancellationException
+	 *             if the cancellation token is cancelled
 	 */
 	public void findLargeItemSets() {
 
-		int numSupport = (int) (m_minSupport * m_TxtReader.numInstances());
+		MiningMonitor monitor = MiningMonitor.enter(m_Listener, m_Token);
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		metrics.beginMining(m_minSupport);
+		try {
+			monitor.phase(MiningMetrics.PHASE_MINING, 0, 0);
+			mineLargeItemSets();
+		} catch (CancellationException e) {
+			m_Ls.removeAllElements();
+			m_LsNumInstances = -1;
+			throw e;
+		} finally {
+			metrics.endMining(m_Ls);
+			monitor.exit();
+		}
+	}
+
+	/**
+	 * Finds all large itemsets with the engine and the itemsets chosen.
+	 */
+	private void mineLargeItemSets() {
 
 		m_Ls.removeAllElements();
+
+		if (m_TxtReader.getEncodedInstances() == null) {
+			m_Ls.addAll(new SON(m_TxtReader, m_ChooseAttributes,
+					(m_PretreatOptions != null) ? m_Pretreats : null,
+					m_minSupport, m_Engine, m_MemoryBudget, pool())
+					.getLargeItemSets());
+			if (m_ItemSets != ITEMSETS_ALL) {
+				Vector<LargeItemSet> ls = LCM.filter(m_Ls,
+						m_ItemSets == ITEMSETS_MAXIMAL);
+				m_Ls.removeAllElements();
+				m_Ls.addAll(ls);
+			}
+			// the attributes have been read with the instances
+			m_PretreatAttributes = null;
+			m_LsNumInstances = -1;
+			return;
+		}
+
+		int numSupport = (int) (m_minSupport * m_TxtReader.numInstances());
+		m_LsNumInstances = m_TxtReader.numInstances();
+		EncodedInstances instances = pretreatEncodedInstances();
 		LargeItemSet largeItemSet = new LargeItemSet(pretreatAttributes(),
 				m_ChooseAttributes, numSupport);
 
+		if (m_ItemSets != ITEMSETS_ALL) {
+			m_Ls.addAll(new LCM(largeItemSet, instances, null,
+					m_ItemSets == ITEMSETS_MAXIMAL).getLargeItemSets());
+			// FUP needs all large itemsets
+			m_LsNumInstances = -1;
+			return;
+		} else if (m_Engine == ENGINE_ECLAT) {
+			m_Ls.addAll(new Eclat(largeItemSet, instances, null)
+					.getLargeItemSets());
+			return;
+		} else if (m_Engine == ENGINE_FPGROWTH) {
+			m_Ls.addAll(new FPGrowth(largeItemSet, instances, null)
+					.getLargeItemSets());
+			return;
+		}
+
 		if (largeItemSet.numLargeItem() > 0) {
+			ForkJoinPool pool = pool();
 			do {
 				m_Ls.add(largeItemSet);
-				largeItemSet = new LargeItemSet(largeItemSet,
-						m_TxtReader.getInstances(), m_PretreatOptions);
+				largeItemSet = new LargeItemSet(largeItemSet, instances, null,
+						pool);
 			} while (largeItemSet.numLargeItem() > 0);
 		}
 	}
 
+	/**
+	 * Appends the instances of another reader, with attributes of the same
+	 * names, and updates the large itemsets with FUP: only the new instances
+	 * are scanned, and the old ones only for the candidates which may have
+	 * become large items. The large itemsets are found from scratch if they
+	 * have not been found with the current options.
+	 * 
+	 * @param txtReader
+	 *            the reader of the new instances
+	 * @throws IllegalArgumentException
+	 *             if the new instances have another number of attributes, or
+	 *             an attribute of another name at the same index
+	 * @throws IllegalStateException
+	 *             if the instances of either reader are read by partitions
+	 * @throws CancellationException
+	 *             if the cancellation token is cancelled
+	 */
+	public void addInstances(TxtReader txtReader) {
+
+		if (txtReader.getEncodedInstances() == null)
+			throw new IllegalStateException(
+					"The new instances are read by partitions");
+
+		int numOldInstances = m_TxtReader.numInstances();
+		m_TxtReader.addInstances(txtReader.getEncodedInstances());
+		m_PretreatAttributes = null;
+		m_PretreatInstances = null;
+
+		if (m_LsNumInstances != numOldInstances) {
+			findLargeItemSets();
+			return;
+		}
+
+		MiningMonitor monitor = MiningMonitor.enter(m_Listener, m_Token);
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		metrics.beginMining(m_minSupport);
+		try {
+			monitor.phase(MiningMetrics.PHASE_MINING, 0, 0);
+			FUP fup = new FUP(m_Ls, pretreatAttributes(), m_ChooseAttributes,
+					m_TxtReader.getEncodedInstances(), pretreatCodeMaps(),
+					numOldInstances, m_minSupport, pool());
+			m_Ls.removeAllElements();
+			m_Ls.addAll(fup.getLargeItemSets());
+			m_LsNumInstances = m_TxtReader.numInstances();
+		} catch (CancellationException e) {
+			m_Ls.removeAllElements();
+			m_LsNumInstances = -1;
+			throw e;
+		} finally {
+			metrics.endMining(m_Ls);
+			monitor.exit();
+		}
+	}
+
+	/**
+	 * Returns the pool of threads counting the candidates, creating it if the
+	 * number of threads has changed.
+	 * 
+	 * @return the pool of threads, or null to count in the calling thread
+	 */
+	private ForkJoinPool pool() {
+
+		if (m_Parallelism <= 1)
+			return null;
+
+		if (m_Pool == null || m_Pool.getParallelism() != m_Parallelism) {
+			if (m_Pool != null)
+				m_Pool.shutdown();
+			m_Pool = new ForkJoinPool(m_Parallelism);
+		}
+
+		return m_Pool;
+	}
+
 	/**
 	 * Method that finds all association rules for the given set of large items.
+	 * The antecedents of each large item are its subsets, looked up in an index
+	 * of the large items. For the closed large items, the rules are the rules
+	 * of the closed ones. For the maximal ones, no rule is found: a proper
+	 * subset of a maximal large item is never maximal, so no antecedent has a
+	 * known weight.
+	 * 
+	 * @throws CancellationException
+	 *             if the cancellation token is cancelled
 	 */
 	public void findAssociationsRules() {
 
 		m_sortedRuleSet.removeAllElements();
 
+		int numLargeItems = 0;
+		for (int i = 1; i < m_Ls.size(); i++)
+			numLargeItems += m_Ls.elementAt(i).numLargeItem();
+
+		MiningMonitor monitor = MiningMonitor.enter(m_Listener, m_Token);
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		metrics.begin(MiningMetrics.PHASE_RULES, 0);
+		try {
+			monitor.phase(MiningMetrics.PHASE_RULES, 0, numLargeItems);
+			findAssociationsRules(m_sortedRuleSet);
+			metrics.rules(m_sortedRuleSet.size());
+		} catch (CancellationException e) {
+			m_sortedRuleSet.removeAllElements();
+			throw e;
+		} finally {
+			metrics.end();
+			monitor.exit();
+		}
+	}
+
+	/**
+	 * Finds all association rules, sorted.
+	 * 
+	 * @param ruleSet
+	 *            the vector receiving the rules
+	 */
+	private void findAssociationsRules(Vector<Rule> ruleSet) {
+
 		if (m_Ls.size() < 2)
 			return;
 
+		HashMap<LargeItem, LargeItem> largeItems = new HashMap<LargeItem, LargeItem>();
+		for (int i = 0; i < m_Ls.size() - 1; i++) {
+			for (LargeItem largeItem : m_Ls.elementAt(i).getLargeItemSet())
+				largeItems.put(largeItem, largeItem);
+		}
+
+		// the last rule kept at the head
+		PriorityQueue<Rule> rules = new PriorityQueue<Rule>(11,
+				Collections.reverseOrder());
+		int numRules = 0;
+		MiningMonitor monitor = MiningMonitor.current();
 		for (int i = 1; i < m_Ls.size(); i++) {
-			Vector<LargeItem> largeItemSet = m_Ls.elementAt(i)
-					.getLargeItemSet();
-			for (int j = 0; j < largeItemSet.size(); j++) {
-				LargeItem largeItem = largeItemSet.elementAt(j);
-
-				for (int k = 0; k < i; k++) {
-					Vector<LargeItem> kLargeItemSet = m_Ls.elementAt(k)
-							.getLargeItemSet();
-					for (int l = 0; l < kLargeItemSet.size(); l++) {
-						LargeItem kLargeItem = kLargeItemSet.elementAt(l);
-
-						if (largeItem.contains(kLargeItem)) {
-							LargeItem splitLargeItem = largeItem
-									.minus(kLargeItem);
-
-							double ruleConfidence = (double) largeItem
-									.getWeight() / kLargeItem.getWeight();
-							
-							if (ruleConfidence >= m_minConfidence) {
-
-								if (numRules() == 0)
-									m_sortedRuleSet.add(new Object[] {
-											kLargeItem, splitLargeItem,
-											ruleConfidence });
-								else {
-									int m = 0;
-									for (; m < numRules(); m++) {
-										if (((Double) (((Object[]) m_sortedRuleSet
-												.elementAt(m))[2]))
-												.doubleValue() <= ruleConfidence) {
-											m_sortedRuleSet.add(m,
-													new Object[] { kLargeItem,
-															splitLargeItem,
-															ruleConfidence });
-											break;
-										}
-									}
-									if (m == numRules())
-										m_sortedRuleSet.add(new Object[] {
-												kLargeItem, splitLargeItem,
-												ruleConfidence });
-								}
-							}
-						}
-					}
+			for (LargeItem largeItem : m_Ls.elementAt(i).getLargeItemSet()) {
+				monitor.check();
+				numRules = findAssociationsRules(largeItem, largeItems, rules,
+						numRules);
+			}
+		}
+
+		ruleSet.addAll(rules);
+		Collections.sort(ruleSet);
+	}
+
+	/**
+	 * Finds the association rules of a large item, the antecedents ordered by
+	 * size and then like their set of large items. The consequents are grown
+	 * one item at a time from the consequents of the rules found, as a
+	 * consequent can only be in a rule if all its subsets are. Once the
+	 * maximum number of rules are kept, a rule must reach the confidence of
+	 * the last rule kept.
+	 * 
+	 * @param largeItem
+	 *            the large item
+	 * @param largeItems
+	 *            the index of the large items
+	 * @param rules
+	 *            the rules kept, the last one at the head
+	 * @param numRules
+	 *            the number of rules found before
+	 * @return the number of rules found with the rules of the large item
+	 */
+	private int findAssociationsRules(LargeItem largeItem,
+			HashMap<LargeItem, LargeItem> largeItems, PriorityQueue<Rule> rules,
+			int numRules) {
+
+		int size = largeItem.numValuesInItem();
+		double minConfidence = minConfidence(rules);
+
+		// the rules of the large item, with the positions of their antecedents
+		Vector<ItemRule> itemRules = new Vector<ItemRule>();
+		Vector<BitSet> consequents = new Vector<BitSet>();
+		for (int i = 0; i < size; i++) {
+			BitSet consequent = new BitSet(size);
+			consequent.set(i);
+			consequents.add(consequent);
+		}
+
+		for (int m = 1; m < size && !consequents.isEmpty(); m++) {
+			HashSet<BitSet> found = new HashSet<BitSet>();
+			for (BitSet consequent : consequents) {
+				BitSet antecedent = new BitSet(size);
+				antecedent.set(0, size);
+				antecedent.andNot(consequent);
+				LargeItem kLargeItem = antecedent(
+						largeItem.subset(positions(antecedent)), largeItems);
+				if (kLargeItem == null)
+					continue;
+				double ruleConfidence = (double) largeItem.getWeight()
+						/ kLargeItem.getWeight();
+				if (ruleConfidence >= minConfidence) {
+					found.add(consequent);
+					itemRules.add(new ItemRule(antecedent, kLargeItem,
+							ruleConfidence));
+				}
+			}
+
+			consequents = generateConsequents(found);
+		}
+
+		Collections.sort(itemRules, new Comparator<ItemRule>() {
+			public int compare(ItemRule a, ItemRule b) {
+				BitSet x = a.m_Bits, y = b.m_Bits;
+				if (x.cardinality() != y.cardinality())
+					return x.cardinality() - y.cardinality();
+				// the set holding the first item they differ by comes first
+				BitSet differ = (BitSet) x.clone();
+				differ.xor(y);
+				int first = differ.nextSetBit(0);
+				return (first < 0) ? 0 : x.get(first) ? -1 : 1;
+			}
+		});
+
+		for (ItemRule itemRule : itemRules) {
+			if (itemRule.m_Confidence < minConfidence(rules))
+				continue;
+
+			LargeItem kLargeItem = itemRule.m_Antecedent;
+			rules.add(new Rule(kLargeItem, largeItem.minus(kLargeItem),
+					itemRule.m_Confidence, numRules++));
+			if (m_MaxRules > 0 && rules.size() > m_MaxRules)
+				rules.poll();
+		}
+
+		return numRules;
+	}
+
+	/**
+	 * Returns the confidence a new rule must reach to be kept. A new rule of
+	 * the same confidence as the last rule kept comes before it.
+	 * 
+	 * @param rules
+	 *            the rules kept, the last one at the head
+	 * @return the minimum confidence of a new rule
+	 */
+	private double minConfidence(PriorityQueue<Rule> rules) {
+
+		if (m_MaxRules > 0 && rules.size() >= m_MaxRules)
+			return Math.max(m_minConfidence, rules.peek().getConfidence());
+
+		return m_minConfidence;
+	}
+
+	/**
+	 * Returns the large itemset of an antecedent. An antecedent which is not
+	 * a closed large itemset gets its weight from the closed ones, and is
+	 * added to the index.
+	 * 
+	 * @param itemSet
+	 *            the antecedent's items
+	 * @param largeItems
+	 *            the index of the large items
+	 * @return the large itemset of the antecedent, or null if its weight is
+	 *         not known from the maximal large itemsets
+	 */
+	private LargeItem antecedent(LargeItem itemSet,
+			HashMap<LargeItem, LargeItem> largeItems) {
+
+		LargeItem largeItem = largeItems.get(itemSet);
+
+		if (largeItem == null && m_ItemSets == ITEMSETS_CLOSED) {
+			itemSet.setWeight(LCM.weight(m_Ls, itemSet));
+			largeItems.put(itemSet, itemSet);
+			largeItem = itemSet;
+		}
+
+		return largeItem;
+	}
+
+	/**
+	 * Generates the consequents of m+1 items the m-subsets of which are all
+	 * consequents found.
+	 * 
+	 * @param found
+	 *            the positions of the items of the consequents of m items
+	 *            found
+	 * @return the positions of the items of the consequents of m+1 items
+	 */
+	private static Vector<BitSet> generateConsequents(HashSet<BitSet> found) {
+
+		Vector<BitSet> consequents = new Vector<BitSet>();
+
+		for (BitSet a : found) {
+			int high = a.length() - 1;
+			BitSet prefix = (BitSet) a.clone();
+			prefix.clear(high);
+			for (BitSet b : found) {
+				// joins the consequents differing only by their last item
+				int last = b.length() - 1;
+				if (last <= high)
+					continue;
+				BitSet bPrefix = (BitSet) b.clone();
+				bPrefix.clear(last);
+				if (!prefix.equals(bPrefix))
+					continue;
+
+				BitSet consequent = (BitSet) a.clone();
+				consequent.set(last);
+				boolean all = true;
+				for (int c = consequent.nextSetBit(0); c >= 0 && all; c = consequent
+						.nextSetBit(c + 1)) {
+					BitSet subset = (BitSet) consequent.clone();
+					subset.clear(c);
+					all = found.contains(subset);
 				}
+				if (all)
+					consequents.add(consequent);
 			}
 		}
 
+		return consequents;
+	}
+
+	/**
+	 * Returns the positions of the bits set, in increasing order.
+	 * 
+	 * @param bits
+	 *            the bits
+	 * @return the positions of the bits set
+	 */
+	private static int[] positions(BitSet bits) {
+
+		int[] positions = new int[bits.cardinality()];
+		for (int i = 0, bit = bits.nextSetBit(0); bit >= 0; i++, bit = bits
+				.nextSetBit(bit + 1))
+			positions[i] = bit;
+
+		return positions;
+	}
+
+	/**
+	 * Method that finds the rules of highest weight with the minimum
+	 * confidence, as many as the maximum number of rules, without a minimum
+	 * support. The minimum support is raised while the rules are found, to
+	 * the weight of the last rule kept.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the maximum number of rules is not set, or if the
+	 *             instances are read by partitions
+	 * @throws CancellationException
+	 *             if the cancellation token is cancelled
+	 */
+	public void findTopKRules() {
+
+		if (m_MaxRules <= 0)
+			throw new IllegalStateException("The maximum number of rules is not set");
+		if (m_TxtReader.getEncodedInstances() == null)
+			throw new IllegalStateException(
+					"Top-k rules can't be found by partitions");
+
+		m_Ls.removeAllElements();
+		m_LsNumInstances = -1;
+		m_sortedRuleSet.removeAllElements();
+
+		EncodedInstances instances = pretreatEncodedInstances();
+		LargeItemSet largeItemSet = new LargeItemSet(pretreatAttributes(),
+				m_ChooseAttributes, 0);
+
+		MiningMonitor monitor = MiningMonitor.enter(m_Listener, m_Token);
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		metrics.begin(MiningMetrics.PHASE_RULES, 0);
+		try {
+			monitor.phase(MiningMetrics.PHASE_RULES, 0, 0);
+			m_sortedRuleSet.addAll(new TopKRules(largeItemSet, instances, null,
+					m_MaxRules, m_minConfidence).getRules());
+			metrics.rules(m_sortedRuleSet.size());
+		} finally {
+			metrics.end();
+			monitor.exit();
+		}
+	}
+
+	/**
+	 * Returns the set of all sets of large itemsets, the k-th set holds the
+	 * (k+1)-itemsets.
+	 * 
+	 * @return the set of all sets of large itemsets
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return m_Ls;
+	}
+
+	/**
+	 * Returns the rules sorted by decreasing confidence.
+	 * 
+	 * @return the rules sorted
+	 */
+	public Vector<Rule> getRuleSet() {
+
+		return m_sortedRuleSet;
 	}
 
 	/**
@@ -206,6 +868,66 @@ public class Apriori {
 		return m_sortedRuleSet.size();
 	}
 
+	/**
+	 * Returns the number of instances.
+	 * 
+	 * @return the number of instances
+	 */
+	public int numInstances() {
+
+		return m_TxtReader.numInstances();
+	}
+
+	/**
+	 * Returns true if the instances are read by partitions, and so are not
+	 * held in memory.
+	 * 
+	 * @return true if the instances are read by partitions
+	 */
+	public boolean isPartitioned() {
+
+		return m_TxtReader.getEncodedInstances() == null;
+	}
+
+	/**
+	 * Returns true if an attribute is choosed.
+	 * 
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return true if the attribute is choosed
+	 */
+	public boolean isChooseAttribute(int attribute) {
+
+		return m_ChooseAttributes != null && m_ChooseAttributes[attribute];
+	}
+
+	/**
+	 * Returns an instance's value pretreated. Only the value is pretreated,
+	 * with the code maps of the attributes pretreated, so the instances
+	 * shown need not be pretreated all.
+	 * 
+	 * @param index
+	 *            the index of the instance
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the instance's value pretreated
+	 * @throws IllegalStateException
+	 *             if the instances are read by partitions
+	 */
+	public String pretreatValue(int index, int attribute) {
+
+		if (isPartitioned())
+			throw new IllegalStateException(
+					"The instances are read by partitions");
+
+		Vector<Attribute> attributes = pretreatAttributes();
+		int code = m_TxtReader.getEncodedInstances().code(index, attribute);
+		if (m_PretreatOptions != null && m_CodeMaps[attribute] != null)
+			code = m_CodeMaps[attribute][code];
+
+		return attributes.elementAt(attribute).getValues().elementAt(code);
+	}
+
 	/**
 	 * Returns the number of choosed attributes.
 	 * 
@@ -242,7 +964,8 @@ public class Apriori {
 	}
 
 	/**
-	 * Returns the vector of attributes pretreated.
+	 * Returns the vector of attributes pretreated. The vector is kept until
+	 * the pretreat options change.
 	 * 
 	 * @return the vector of attributes pretreated
 	 */
@@ -251,13 +974,77 @@ public class Apriori {
 		if (m_PretreatOptions == null)
 			return m_TxtReader.getAttributes();
 
-		Vector<Attribute> pretreatAttributes = new Vector<Attribute>();
+		if (m_PretreatAttributes == null) {
+			MiningMetrics metrics = MiningMetrics.getInstance();
+			metrics.begin(MiningMetrics.PHASE_PRETREAT, 0);
+			try {
+				m_PretreatAttributes = new Vector<Attribute>();
+				m_CodeMaps = new int[m_TxtReader.numAttributes()][];
+
+				for (int i = 0; i < m_TxtReader.numAttributes(); i++) {
+					Attribute attribute = m_TxtReader.getAttributes()
+							.elementAt(i);
+					if (m_Pretreats[i] != null)
+						m_CodeMaps[i] = new int[attribute.numValues()];
+					m_PretreatAttributes.add(attribute.pretreat(m_Pretreats[i],
+							m_CodeMaps[i]));
+				}
+			} finally {
+				metrics.end();
+			}
+		}
+
+		return m_PretreatAttributes;
+	}
 
-		for (int i = 0; i < m_TxtReader.numAttributes(); i++)
-			pretreatAttributes.add(m_TxtReader.getAttributes().elementAt(i)
-					.pretreat(m_PretreatOptions[i]));
+	/**
+	 * Returns the encoded instances pretreated. The choosed attributes are
+	 * pretreated once and the instances are kept until the choosed attributes
+	 * or the pretreat options change, the other attributes are not pretreated.
+	 * 
+	 * @return the encoded instances pretreated
+	 */
+	public EncodedInstances pretreatEncodedInstances() {
+
+		if (m_PretreatInstances == null) {
+			Vector<Attribute> attributes = pretreatAttributes();
+			int[][] codeMaps = pretreatCodeMaps();
+
+			MiningMetrics metrics = MiningMetrics.getInstance();
+			metrics.begin(MiningMetrics.PHASE_PRETREAT, 0);
+			try {
+				m_PretreatInstances = m_TxtReader.getEncodedInstances()
+						.pretreat(attributes, codeMaps);
+			} finally {
+				metrics.end();
+			}
+		}
 
-		return pretreatAttributes;
+		return m_PretreatInstances;
+	}
+
+	/**
+	 * Returns the maps from the codes of the instances to the codes of the
+	 * attributes pretreated. The map of an attribute is null if the attribute
+	 * is not choosed or not pretreated.
+	 * 
+	 * @return the maps from the codes of the instances to the codes of the
+	 *         attributes pretreated
+	 */
+	private int[][] pretreatCodeMaps() {
+
+		int[][] codeMaps = new int[m_TxtReader.numAttributes()][];
+
+		pretreatAttributes();
+		if (m_PretreatOptions == null)
+			return codeMaps;
+
+		for (int i = 0; i < m_TxtReader.numAttributes(); i++) {
+			if (m_ChooseAttributes[i])
+				codeMaps[i] = m_CodeMaps[i];
+		}
+
+		return codeMaps;
 	}
 
 	/**
@@ -285,37 +1072,38 @@ public class Apriori {
 	 */
 	public Object[][] instancesToObjectArray() {
 
-		Object[][] objectArray = new Object[m_TxtReader.numInstances()][];
+		EncodedInstances instances = m_TxtReader.getEncodedInstances();
+		Object[][] objectArray = new Object[instances.numInstances()][];
 
-		for (int i = 0; i < m_TxtReader.numInstances(); i++) {
-			objectArray[i] = (String[]) m_TxtReader.getInstances().elementAt(i);
+		for (int i = 0; i < instances.numInstances(); i++) {
+			objectArray[i] = instances.instance(i);
 		}
 
 		return objectArray;
 	}
 
 	/**
-	 * Returns the vector of instances pretreated.
+	 * Returns the vector of instances pretreated. Each instance is a new
+	 * string array.
 	 * 
 	 * @return the vector of instances pretreated
+	 * @deprecated use pretreatValue(), which pretreats only the values read
 	 */
+	@Deprecated
 	public Vector<Object> pretreatInstances() {
 
 		if (m_ChooseAttributes == null)
 			return m_TxtReader.getInstances();
 
-		Vector<Object> pretreatInstances = new Vector<Object>();
+		EncodedInstances instances = pretreatEncodedInstances();
+		Vector<Object> pretreatInstances = new Vector<Object>(
+				instances.numInstances());
 		String[] pretreatInstance = new String[numChooseAttributes()];
 
-		for (int i = 0; i < m_TxtReader.numInstances(); i++) {
-			String[] instance = (String[]) m_TxtReader.getInstances()
-					.elementAt(i);
-
-			for (int j = 0, k = 0; j < instance.length; j++) {
+		for (int i = 0; i < instances.numInstances(); i++) {
+			for (int j = 0, k = 0; j < instances.numAttributes(); j++) {
 				if (m_ChooseAttributes[j])
-					pretreatInstance[k++] = (m_PretreatOptions != null) ? Pretreat
-							.pretreat(instance[j], m_PretreatOptions[j])
-							: instance[j];
+					pretreatInstance[k++] = instances.value(i, j);
 			}
 			pretreatInstances.add(pretreatInstance);
 			pretreatInstance = new String[numChooseAttributes()];
@@ -334,14 +1122,13 @@ public class Apriori {
 		if (m_ChooseAttributes == null)
 			return instancesToObjectArray();
 
-		Vector<Object> pretreatInstances = pretreatInstances();
-		Object[][] objectArray = new Object[pretreatInstances.size()][numChooseAttributes()];
+		Object[][] objectArray = new Object[numInstances()][numChooseAttributes()];
 
-		for (int i = 0; i < pretreatInstances.size(); i++) {
-			String[] pretreatInstance = (String[]) pretreatInstances
-					.elementAt(i);
-			for (int j = 0, k = 0; j < pretreatInstance.length; j++, k++)
-				objectArray[i][k] = pretreatInstance[k];
+		for (int i = 0; i < objectArray.length; i++) {
+			for (int j = 0, k = 0; j < m_ChooseAttributes.length; j++) {
+				if (m_ChooseAttributes[j])
+					objectArray[i][k++] = pretreatValue(i, j);
+			}
 		}
 
 		return objectArray;
@@ -416,7 +1203,10 @@ public class Apriori {
 		StringBuilder sb = new StringBuilder();
 
 		sb.append("Сֶ֧: " + m_minSupport + "\n");
-		sb.append("СŶ: " + m_minConfidence + "\n\n");
+		sb.append("СŶ: " + m_minConfidence + "\n");
+		if (m_MaxRules > 0)
+			sb.append(": " + m_MaxRules + "\n");
+		sb.append("\n");
 
 		return sb.toString();
 	}
@@ -477,15 +1267,15 @@ public class Apriori {
 		sb.append("ɹ\n");
 
 		for (int n = 0; n < m_sortedRuleSet.size(); n++) {
-			Object[] objArray = (Object[]) m_sortedRuleSet.elementAt(n);
+			Rule rule = m_sortedRuleSet.elementAt(n);
 			sb.append(n + 1 + ".");
 
-			sb.append(largeItemToString((LargeItem) objArray[0]));
+			sb.append(largeItemToString(rule.getAntecedent()));
 			sb.append(" ==>");
-			sb.append(largeItemToString((LargeItem) objArray[1]));
+			sb.append(largeItemToString(rule.getConsequent()));
 
 			sb.append("\tconf:(");
-			sb.append(String.format("%.2f", objArray[2]));
+			sb.append(String.format("%.2f", rule.getConfidence()));
 			sb.append(")\n");
 		}
 		sb.append("\n");
@@ -545,7 +1335,7 @@ public class Apriori {
 			return;
 		}
 
-		Apriori apriori = new Apriori(new TxtReader(new File(args[0])));
+		Apriori apriori = new Apriori(new File(args[0]));
 		apriori.setOptions(null);
 		apriori.chooseAttributes(null);
 		apriori.setPretreatOptions(null);
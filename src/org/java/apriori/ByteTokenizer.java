@@ -0,0 +1,440 @@
+/*
+ *    ByteTokenizer.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Splits a memory-mapped range of a TXT file into tokens, scanning the bytes
+ * directly. The syntax is the one of the StreamTokenizer set up by TxtReader:
+ * bytes up to ' ' and ',' are white space, '%' starts a comment, '"' and '\''
+ * quote strings, '{' and '}' are ordinary, every other byte is part of a word
+ * and line ends are significant. The token types are those of StreamTokenizer.
+ * The range is mapped in windows, so it may be larger than 2GB.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+class ByteTokenizer {
+
+	/** The maximum number of bytes mapped at once. */
+	private static final int WINDOW_SIZE = 1 << 30;
+
+	/** The token type returned when the window ends inside a token. */
+	private static final int TT_MORE = -4;
+
+	/** Whether each byte can be part of a word. */
+	private static final boolean[] WORD_CHARS = new boolean[256];
+
+	static {
+		for (int c = ' ' + 1; c < 256; c++)
+			WORD_CHARS[c] = true;
+		WORD_CHARS[','] = false;
+		WORD_CHARS['%'] = false;
+		WORD_CHARS['"'] = false;
+		WORD_CHARS['\''] = false;
+		WORD_CHARS['{'] = false;
+		WORD_CHARS['}'] = false;
+	}
+
+	/** The channel of the file. */
+	private FileChannel m_Channel;
+
+	/** The position in the file of the end of the range, exclusive. */
+	private long m_To;
+
+	/** The window of the range mapped. */
+	private MappedByteBuffer m_Buffer;
+
+	/** The position in the file of the window. */
+	private long m_Offset;
+
+	/** The number of bytes in the window. */
+	private int m_Limit;
+
+	/** Whether the window reaches the end of the range. */
+	private boolean m_Last;
+
+	/** The position in the window of the next byte to scan. */
+	private int m_Position;
+
+	/** The position in the window of the first byte of the last word. */
+	private int m_Start;
+
+	/** The position in the window after the last byte of the last word. */
+	private int m_End;
+
+	/**
+	 * A dictionary from the bytes of words to codes, hashed with open
+	 * addressing, so that a word already seen is looked up without being
+	 * decoded into a string.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	static class Dictionary {
+
+		/** The words, null for an empty slot. */
+		private byte[][] m_Keys = new byte[16][];
+
+		/** The hash of each word. */
+		private int[] m_Hashs = new int[16];
+
+		/** The code of each word. */
+		private int[] m_Codes = new int[16];
+
+		/** The number of words. */
+		private int m_Size;
+
+		/**
+		 * Returns the code of the last word of the tokenizer.
+		 * 
+		 * @param tokenizer
+		 *            the tokenizer
+		 * @param hash
+		 *            the hash of the word
+		 * @return the code of the word, or -1 if the word is not in this
+		 *         dictionary
+		 */
+		int get(ByteTokenizer tokenizer, int hash) {
+
+			int mask = m_Keys.length - 1;
+			for (int i = hash & mask; m_Keys[i] != null; i = (i + 1) & mask) {
+				if (m_Hashs[i] == hash && tokenizer.wordEquals(m_Keys[i]))
+					return m_Codes[i];
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Adds a word not in this dictionary.
+		 * 
+		 * @param key
+		 *            the bytes of the word
+		 * @param hash
+		 *            the hash of the word
+		 * @param code
+		 *            the code of the word
+		 */
+		void put(byte[] key, int hash, int code) {
+
+			if (2 * (m_Size + 1) > m_Keys.length) {
+				byte[][] keys = m_Keys;
+				int[] hashs = m_Hashs, codes = m_Codes;
+				m_Keys = new byte[keys.length * 2][];
+				m_Hashs = new int[keys.length * 2];
+				m_Codes = new int[keys.length * 2];
+				for (int i = 0; i < keys.length; i++) {
+					if (keys[i] != null)
+						insert(keys[i], hashs[i], codes[i]);
+				}
+			}
+
+			insert(key, hash, code);
+			m_Size++;
+		}
+
+		/**
+		 * Inserts a word in the first free slot for its hash.
+		 * 
+		 * @param key
+		 *            the bytes of the word
+		 * @param hash
+		 *            the hash of the word
+		 * @param code
+		 *            the code of the word
+		 */
+		private void insert(byte[] key, int hash, int code) {
+
+			int mask = m_Keys.length - 1;
+			int i = hash & mask;
+			while (m_Keys[i] != null)
+				i = (i + 1) & mask;
+
+			m_Keys[i] = key;
+			m_Hashs[i] = hash;
+			m_Codes[i] = code;
+		}
+
+	}
+
+	/**
+	 * Creates a tokenizer for a range of the file.
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param from
+	 *            the position in the file of the start of the range
+	 * @param to
+	 *            the position in the file of the end of the range, exclusive
+	 * @throws IOException
+	 *             if the range can't be mapped
+	 */
+	ByteTokenizer(FileChannel channel, long from, long to) throws IOException {
+
+		m_Channel = channel;
+		m_To = to;
+		map(from);
+	}
+
+	/**
+	 * Returns true if a charset encodes the characters below 128 as single
+	 * bytes and no other character with such a byte, so that the tokens can be
+	 * found in the bytes before they are decoded.
+	 * 
+	 * @param charset
+	 *            the charset
+	 * @return true if the tokens can be found in the bytes
+	 */
+	static boolean isSupported(Charset charset) {
+
+		String name = charset.name();
+
+		return name.equals("UTF-8") || name.equals("US-ASCII")
+				|| name.equals("ISO-8859-1");
+	}
+
+	/**
+	 * Returns the position in the file of the start of the first line at or
+	 * after a position. A line end escaped in a quoted string is skipped.
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param position
+	 *            the position in the file
+	 * @param to
+	 *            the position in the file of the end of the range, exclusive
+	 * @return the position of the start of the line, or the end of the range
+	 *         if there is none
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	static long nextLine(FileChannel channel, long position, long to)
+			throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		boolean lineStart = position == 0;
+		int last = 0;
+
+		// the two bytes before the position tell if it starts a line
+		long offset = Math.max(position - 2, 0);
+		while (offset < to) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), to - offset));
+			int length = channel.read(buffer, offset);
+			if (length <= 0)
+				break;
+
+			for (int i = 0; i < length; i++) {
+				if (lineStart && offset + i >= position)
+					return offset + i;
+				int c = buffer.get(i);
+				lineStart = c == '\n' && last != '\\';
+				last = c;
+			}
+			offset += length;
+		}
+
+		return to;
+	}
+
+	/**
+	 * Maps the window starting at a position in the file.
+	 * 
+	 * @param offset
+	 *            the position in the file of the window
+	 * @throws IOException
+	 *             if the window can't be mapped
+	 */
+	private void map(long offset) throws IOException {
+
+		m_Limit = (int) Math.min(WINDOW_SIZE, m_To - offset);
+		m_Buffer = m_Channel.map(FileChannel.MapMode.READ_ONLY, offset, m_Limit);
+		m_Offset = offset;
+		m_Last = offset + m_Limit >= m_To;
+		m_Position = 0;
+	}
+
+	/**
+	 * Returns the position in the file of the next byte to scan.
+	 * 
+	 * @return the position in the file of the next byte to scan
+	 */
+	long position() {
+
+		return m_Offset + m_Position;
+	}
+
+	/**
+	 * Parses the next token. A word can be read with the word methods, the
+	 * type of a quoted string is its quote character, like StreamTokenizer.
+	 * 
+	 * @return the type of the token, StreamTokenizer.TT_WORD, TT_EOL, TT_EOF,
+	 *         or the character of a quote or an ordinary token
+	 * @throws IOException
+	 *             if the next window can't be mapped
+	 */
+	int nextToken() throws IOException {
+
+		int type;
+		while ((type = scan()) == TT_MORE) {
+			if (m_Position == 0)
+				throw new IOException("Token longer than " + WINDOW_SIZE
+						+ " bytes at " + m_Offset);
+			map(m_Offset + m_Position);
+		}
+
+		return type;
+	}
+
+	/**
+	 * Scans the window for the next token.
+	 * 
+	 * @return the type of the token, or TT_MORE if the window ends inside the
+	 *         token, the position is then the start of the token
+	 */
+	private int scan() {
+
+		MappedByteBuffer buffer = m_Buffer;
+		int limit = m_Limit;
+		int p = m_Position;
+
+		while (p < limit) {
+			int c = buffer.get(p) & 0xFF;
+
+			if (c == '\n') {
+				m_Position = p + 1;
+				return StreamTokenizer.TT_EOL;
+			}
+
+			if (c == '\r') {
+				if (p + 1 == limit && !m_Last) {
+					m_Position = p;
+					return TT_MORE;
+				}
+				m_Position = (p + 1 < limit && buffer.get(p + 1) == '\n') ? p + 2
+						: p + 1;
+				return StreamTokenizer.TT_EOL;
+			}
+
+			if (c <= ' ' || c == ',') {
+				p++;
+				continue;
+			}
+
+			if (c == '%') {
+				int q = p + 1;
+				while (q < limit && buffer.get(q) != '\n' && buffer.get(q) != '\r')
+					q++;
+				if (q == limit && !m_Last) {
+					m_Position = p;
+					return TT_MORE;
+				}
+				p = q;
+				continue;
+			}
+
+			if (c == '"' || c == '\'') {
+				// like StreamTokenizer, a line end closes the string too
+				int q = p + 1;
+				boolean closed = false;
+				while (q < limit && !closed) {
+					int d = buffer.get(q);
+					if (d == c) {
+						q++;
+						closed = true;
+					} else if (d == '\n' || d == '\r')
+						closed = true;
+					else
+						q += (d == '\\') ? 2 : 1;
+				}
+				if (!closed && !m_Last) {
+					m_Position = p;
+					return TT_MORE;
+				}
+				m_Position = Math.min(q, limit);
+				return c;
+			}
+
+			if (c == '{' || c == '}') {
+				m_Position = p + 1;
+				return c;
+			}
+
+			int q = p + 1;
+			while (q < limit && WORD_CHARS[buffer.get(q) & 0xFF])
+				q++;
+			if (q == limit && !m_Last) {
+				m_Position = p;
+				return TT_MORE;
+			}
+			m_Start = p;
+			m_End = q;
+			m_Position = q;
+			return StreamTokenizer.TT_WORD;
+		}
+
+		m_Position = p;
+
+		return m_Last ? StreamTokenizer.TT_EOF : TT_MORE;
+	}
+
+	/**
+	 * Returns the hash of the last word.
+	 * 
+	 * @return the hash of the last word
+	 */
+	int wordHash() {
+
+		int hash = 0;
+		for (int i = m_Start; i < m_End; i++)
+			hash = 31 * hash + m_Buffer.get(i);
+
+		return hash;
+	}
+
+	/**
+	 * Returns true if the last word has the given bytes.
+	 * 
+	 * @param key
+	 *            the bytes
+	 * @return true if the last word has the given bytes
+	 */
+	boolean wordEquals(byte[] key) {
+
+		if (key.length != m_End - m_Start)
+			return false;
+
+		for (int i = 0; i < key.length; i++) {
+			if (key[i] != m_Buffer.get(m_Start + i))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the bytes of the last word.
+	 * 
+	 * @return the bytes of the last word
+	 */
+	byte[] word() {
+
+		byte[] word = new byte[m_End - m_Start];
+		for (int i = 0; i < word.length; i++)
+			word[i] = m_Buffer.get(m_Start + i);
+
+		return word;
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ *    CancellationToken.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Asks a mining to stop. The mining checks the token inside its scans and
+ * searches, and throws a CancellationException once the token is cancelled.
+ * A token stays cancelled, a new token is needed for the next mining.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class CancellationToken {
+
+	/** Whether the mining is asked to stop. */
+	private volatile boolean m_Cancelled = false;
+
+	/**
+	 * Asks the mining to stop. May be called from any thread.
+	 */
+	public void cancel() {
+
+		m_Cancelled = true;
+	}
+
+	/**
+	 * Returns true if the mining is asked to stop.
+	 * 
+	 * @return true if the token is cancelled
+	 */
+	public boolean isCancelled() {
+
+		return m_Cancelled;
+	}
+
+	/**
+	 * Throws a CancellationException if the token is cancelled.
+	 * 
+	 * @throws CancellationException
+	 *             if the token is cancelled
+	 */
+	public void check() {
+
+		if (m_Cancelled)
+			throw new CancellationException("The mining is cancelled");
+	}
+
+}
@@ -0,0 +1,441 @@
+/*
+ *    CandidateTrie.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * A prefix trie over itemset candidates, for counting all the candidates in
+ * one scan of the encoded instances. The items of the candidates are the edges
+ * of the trie, and each instance only visits the nodes of the candidates it
+ * can contain: at each node the instance's code of an attribute is looked up
+ * among the children on that attribute. The trie is not changed by counting,
+ * so partitions of the instances can be counted in parallel.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+class CandidateTrie {
+
+	/** The root node. */
+	private Node m_Root;
+
+	/** The number of candidates. */
+	private int m_NumCandidates;
+
+	/** The attributes on an edge of the trie, ascending. */
+	private int[] m_Indexs;
+
+	/** The monitor of the thread creating the trie. */
+	private MiningMonitor m_Monitor;
+
+	/** The minimum number of instances counted by one task. */
+	private static final int MIN_TASK_INSTANCES = 4096;
+
+	/** The number of tasks for each worker of a pool. */
+	private static final int TASKS_PER_WORKER = 4;
+
+	/**
+	 * A node of the trie.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Node {
+
+		/** The attribute index of each child. */
+		private int[] m_Indexs = new int[2];
+
+		/** The code of each child. */
+		private int[] m_Codes = new int[2];
+
+		/** The children. */
+		private Node[] m_Children = new Node[2];
+
+		/** The number of children. */
+		private int m_NumChildren;
+
+		/** The first child of each group of children on the same attribute. */
+		private int[] m_Groups;
+
+		/** The candidate ending at this node, or -1. */
+		private int m_Candidate = -1;
+
+		/**
+		 * Returns the child for the item, adding it if needed.
+		 * 
+		 * @param index
+		 *            the item's attribute index
+		 * @param code
+		 *            the item's code
+		 * @return the child for the item
+		 */
+		private Node child(int index, int code) {
+
+			// candidates mostly come ordered, so the last child is tried first
+			for (int i = m_NumChildren - 1; i >= 0; i--) {
+				if (m_Indexs[i] == index && m_Codes[i] == code)
+					return m_Children[i];
+			}
+
+			if (m_NumChildren == m_Children.length) {
+				int[] indexs = new int[m_NumChildren * 2];
+				int[] codes = new int[m_NumChildren * 2];
+				Node[] children = new Node[m_NumChildren * 2];
+				System.arraycopy(m_Indexs, 0, indexs, 0, m_NumChildren);
+				System.arraycopy(m_Codes, 0, codes, 0, m_NumChildren);
+				System.arraycopy(m_Children, 0, children, 0, m_NumChildren);
+				m_Indexs = indexs;
+				m_Codes = codes;
+				m_Children = children;
+			}
+
+			Node child = new Node();
+			m_Indexs[m_NumChildren] = index;
+			m_Codes[m_NumChildren] = code;
+			m_Children[m_NumChildren++] = child;
+
+			return child;
+		}
+
+		/**
+		 * Sorts the children by attribute index and code, groups them by
+		 * attribute index, and does the same for all descendants.
+		 */
+		private void freeze() {
+
+			// insertion sort, the children are mostly ordered already
+			for (int i = 1; i < m_NumChildren; i++) {
+				int index = m_Indexs[i], code = m_Codes[i];
+				Node child = m_Children[i];
+				int j = i - 1;
+				while (j >= 0
+						&& (m_Indexs[j] > index || (m_Indexs[j] == index
+								&& m_Codes[j] > code))) {
+					m_Indexs[j + 1] = m_Indexs[j];
+					m_Codes[j + 1] = m_Codes[j];
+					m_Children[j + 1] = m_Children[j];
+					j--;
+				}
+				m_Indexs[j + 1] = index;
+				m_Codes[j + 1] = code;
+				m_Children[j + 1] = child;
+			}
+
+			int numGroups = 0;
+			int[] groups = new int[m_NumChildren + 1];
+			for (int i = 0; i < m_NumChildren; i++) {
+				if (i == 0 || m_Indexs[i] != m_Indexs[i - 1])
+					groups[numGroups++] = i;
+			}
+			groups[numGroups] = m_NumChildren;
+			m_Groups = new int[numGroups + 1];
+			System.arraycopy(groups, 0, m_Groups, 0, numGroups + 1);
+
+			for (int i = 0; i < m_NumChildren; i++)
+				m_Children[i].freeze();
+		}
+
+		/**
+		 * Counts the candidates of this subtrie contained in the instance.
+		 * 
+		 * @param instance
+		 *            the codes of the instance, one for each attribute
+		 * @param counts
+		 *            the weight of each candidate
+		 */
+		private void count(int[] instance, int[] counts) {
+
+			if (m_Candidate >= 0)
+				counts[m_Candidate]++;
+
+			for (int g = 0; g < m_Groups.length - 1; g++) {
+				int low = m_Groups[g], high = m_Groups[g + 1] - 1;
+				int code = instance[m_Indexs[low]];
+
+				while (low <= high) {
+					int middle = (low + high) >>> 1;
+					if (m_Codes[middle] < code)
+						low = middle + 1;
+					else if (m_Codes[middle] > code)
+						high = middle - 1;
+					else {
+						m_Children[middle].count(instance, counts);
+						break;
+					}
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * A task counting the candidates in a range of the encoded instances. The
+	 * range is split in two subtasks until it is small enough, each leaf task
+	 * counts into its own array and the arrays are added when joined.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private class CountTask extends RecursiveTask<int[]> {
+
+		/** for serialization */
+		private static final long serialVersionUID = -2873416043531250342L;
+
+		/** The encoded instances. */
+		private EncodedInstances m_Instances;
+
+		/** The maps from the codes of the instances to the codes pretreated. */
+		private int[][] m_CodeMaps;
+
+		/** The index of the first instance, inclusive. */
+		private int m_From;
+
+		/** The index of the last instance, exclusive. */
+		private int m_To;
+
+		/** The maximum number of instances counted without splitting. */
+		private int m_Threshold;
+
+		/**
+		 * Creates a task counting a range of the encoded instances.
+		 * 
+		 * @param instances
+		 *            the encoded instances
+		 * @param codeMaps
+		 *            the maps from the codes of the instances to the codes of
+		 *            the attributes pretreated
+		 * @param from
+		 *            the index of the first instance, inclusive
+		 * @param to
+		 *            the index of the last instance, exclusive
+		 * @param threshold
+		 *            the maximum number of instances counted without splitting
+		 */
+		private CountTask(EncodedInstances instances, int[][] codeMaps,
+				int from, int to, int threshold) {
+
+			m_Instances = instances;
+			m_CodeMaps = codeMaps;
+			m_From = from;
+			m_To = to;
+			m_Threshold = threshold;
+		}
+
+		/**
+		 * Counts the range, splitting it if it is too large.
+		 * 
+		 * @return the weight of each candidate in the range
+		 */
+		protected int[] compute() {
+
+			if (m_To - m_From <= m_Threshold) {
+				int[] counts = new int[m_NumCandidates];
+				count(m_Instances, m_CodeMaps, m_From, m_To, counts);
+				return counts;
+			}
+
+			int middle = (m_From + m_To) >>> 1;
+			CountTask left = new CountTask(m_Instances, m_CodeMaps, m_From,
+					middle, m_Threshold);
+			CountTask right = new CountTask(m_Instances, m_CodeMaps, middle,
+					m_To, m_Threshold);
+			left.fork();
+			int[] counts = right.compute();
+			int[] leftCounts = left.join();
+			for (int i = 0; i < counts.length; i++)
+				counts[i] += leftCounts[i];
+
+			return counts;
+		}
+
+	}
+
+	/**
+	 * Creates the trie over the candidates. The i-th candidate is counted at
+	 * position i.
+	 * 
+	 * @param candidates
+	 *            the itemset candidates, with the items ordered by the indexs
+	 */
+	CandidateTrie(Vector<LargeItem> candidates) {
+
+		m_Root = new Node();
+		m_NumCandidates = candidates.size();
+		m_Monitor = MiningMonitor.current();
+
+		boolean[] used = new boolean[0];
+		for (int i = 0; i < candidates.size(); i++) {
+			LargeItem candidate = candidates.elementAt(i);
+			int[] indexs = candidate.getIndexs();
+			int[] codes = candidate.getCodes();
+
+			Node node = m_Root;
+			for (int j = 0; j < indexs.length; j++) {
+				node = node.child(indexs[j], codes[j]);
+				if (indexs[j] >= used.length) {
+					boolean[] newUsed = new boolean[indexs[j] + 1];
+					System.arraycopy(used, 0, newUsed, 0, used.length);
+					used = newUsed;
+				}
+				used[indexs[j]] = true;
+			}
+			node.m_Candidate = i;
+		}
+		m_Root.freeze();
+
+		int numIndexs = 0;
+		for (int i = 0; i < used.length; i++) {
+			if (used[i])
+				numIndexs++;
+		}
+		m_Indexs = new int[numIndexs];
+		for (int i = 0, j = 0; i < used.length; i++) {
+			if (used[i])
+				m_Indexs[j++] = i;
+		}
+	}
+
+	/**
+	 * Returns the number of candidates.
+	 * 
+	 * @return the number of candidates
+	 */
+	int numCandidates() {
+
+		return m_NumCandidates;
+	}
+
+	/**
+	 * Counts the weights of all candidates in one scan of the encoded
+	 * instances.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @return the weight of each candidate
+	 */
+	int[] count(EncodedInstances instances, int[][] codeMaps) {
+
+		int[] counts = new int[m_NumCandidates];
+		count(instances, codeMaps, 0, instances.numInstances(), counts);
+		MiningMetrics.getInstance().scanned(instances.numInstances());
+
+		return counts;
+	}
+
+	/**
+	 * Counts the weights of all candidates, with the instances partitioned
+	 * among the workers of the pool.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param pool
+	 *            the pool counting the partitions, or null to count in the
+	 *            calling thread
+	 * @return the weight of each candidate
+	 */
+	int[] count(EncodedInstances instances, int[][] codeMaps, ForkJoinPool pool) {
+
+		return count(instances, codeMaps, 0, instances.numInstances(), pool);
+	}
+
+	/**
+	 * Counts the weights of all candidates in a range of the encoded
+	 * instances, with the range partitioned among the workers of the pool.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param from
+	 *            the index of the first instance, inclusive
+	 * @param to
+	 *            the index of the last instance, exclusive
+	 * @param pool
+	 *            the pool counting the partitions, or null to count in the
+	 *            calling thread
+	 * @return the weight of each candidate in the range
+	 */
+	int[] count(EncodedInstances instances, int[][] codeMaps, int from,
+			int to, ForkJoinPool pool) {
+
+		int numInstances = to - from;
+		MiningMetrics.getInstance().scanned(numInstances);
+		if (pool == null || pool.getParallelism() <= 1
+				|| numInstances < 2 * MIN_TASK_INSTANCES) {
+			int[] counts = new int[m_NumCandidates];
+			count(instances, codeMaps, from, to, counts);
+			return counts;
+		}
+
+		int threshold = Math.max(MIN_TASK_INSTANCES, numInstances
+				/ (pool.getParallelism() * TASKS_PER_WORKER));
+
+		return pool.invoke(new CountTask(instances, codeMaps, from, to,
+				threshold));
+	}
+
+	/**
+	 * Adds the weights of all candidates in a range of the encoded instances
+	 * to the counts.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param from
+	 *            the index of the first instance, inclusive
+	 * @param to
+	 *            the index of the last instance, exclusive
+	 * @param counts
+	 *            the weight of each candidate
+	 */
+	void count(EncodedInstances instances, int[][] codeMaps, int from, int to,
+			int[] counts) {
+
+		if (m_Root.m_NumChildren == 0) {
+			if (m_Root.m_Candidate >= 0)
+				counts[m_Root.m_Candidate] += to - from;
+			return;
+		}
+
+		int[][] columns = new int[m_Indexs.length][];
+		int[][] maps = new int[m_Indexs.length][];
+		for (int i = 0; i < m_Indexs.length; i++) {
+			columns[i] = instances.getColumn(m_Indexs[i]);
+			maps[i] = (codeMaps != null) ? codeMaps[m_Indexs[i]] : null;
+		}
+
+		// the progress is reported and the cancellation checked by blocks
+		int[] instance = new int[m_Indexs[m_Indexs.length - 1] + 1];
+		for (int start = from, end; start < to; start = end) {
+			end = start + Math.min(to - start, MiningMonitor.BLOCK_INSTANCES);
+			for (int n = start; n < end; n++) {
+				for (int i = 0; i < m_Indexs.length; i++) {
+					int code = columns[i][n];
+					instance[m_Indexs[i]] = (maps[i] != null) ? maps[i][code]
+							: code;
+				}
+				m_Root.count(instance, counts);
+			}
+			m_Monitor.scanned(end - start);
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+/*
+ *    Eclat.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Vector;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * Finds all sets of large items with vertical TID-bitsets (Eclat). One bitset
+ * of instance indexs is built for each 1-largeItem, and the weight of a
+ * k-itemset is the number of bits in the intersection of the bitsets of two of
+ * its (k-1)-subsets, so the instances are scanned only once.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class Eclat {
+
+	/** The set of all sets of itemsets L. */
+	private Vector<LargeItemSet> m_Ls;
+
+	/** The set of 1-largeItems. */
+	private Vector<LargeItem> m_OneLargeItems;
+
+	/** The minimum weight. */
+	private int m_minWeight;
+
+	/**
+	 * Finds all sets of large items from the set of 1-largeItems and the
+	 * encoded instances.
+	 * 
+	 * @param oneLargeItemSet
+	 *            the set of 1-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 */
+	public Eclat(LargeItemSet oneLargeItemSet, EncodedInstances instances,
+			int[][] codeMaps) {
+
+		m_Ls = new Vector<LargeItemSet>();
+		m_OneLargeItems = oneLargeItemSet.getLargeItemSet();
+		m_minWeight = oneLargeItemSet.getOption();
+
+		if (oneLargeItemSet.numLargeItem() > 0) {
+			m_Ls.add(oneLargeItemSet);
+			findLargeItemSets(instances, codeMaps);
+		}
+	}
+
+	/**
+	 * Returns the set of all sets of large items, the k-th set holds the
+	 * (k+1)-largeItems.
+	 * 
+	 * @return the set of all sets of large items
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return m_Ls;
+	}
+
+	/**
+	 * Method that finds all k-largeItems (k > 1) for the encoded instances.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 */
+	private void findLargeItemSets(EncodedInstances instances, int[][] codeMaps) {
+
+		int[] items = new int[m_OneLargeItems.size()];
+		for (int i = 0; i < items.length; i++)
+			items[i] = i;
+
+		mine(new int[0], items, tidSets(m_OneLargeItems, instances, codeMaps));
+	}
+
+	/**
+	 * Builds the bitset of instance indexs for each 1-largeItem in one scan of
+	 * the encoded instances.
+	 * 
+	 * @param oneLargeItems
+	 *            the 1-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 * @return the bitsets of the 1-largeItems
+	 */
+	static long[][] tidSets(Vector<LargeItem> oneLargeItems,
+			EncodedInstances instances, int[][] codeMaps) {
+
+		int numWords = (instances.numInstances() + 63) >>> 6;
+		long[][] tidSets = new long[oneLargeItems.size()][numWords];
+
+		int[][] positions = LargeItemSet.itemPositions(oneLargeItems,
+				instances.numAttributes());
+
+		MiningMonitor monitor = MiningMonitor.current();
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] == null)
+				continue;
+
+			monitor.check();
+			int[] column = instances.getColumn(i);
+			int[] map = (codeMaps != null) ? codeMaps[i] : null;
+			int[] position = positions[i];
+			for (int n = 0; n < instances.numInstances(); n++) {
+				int code = (map != null) ? map[column[n]] : column[n];
+				if (code >= 0 && code < position.length && position[code] >= 0)
+					tidSets[position[code]][n >>> 6] |= 1L << n;
+			}
+		}
+		MiningMetrics.getInstance().scanned(instances.numInstances());
+		monitor.scanned(instances.numInstances());
+
+		return tidSets;
+	}
+
+	/**
+	 * Finds depth first all large items extending the prefix. The items are
+	 * visited in the order of the 1-largeItems, so the large items of each
+	 * size are found in the same order as the level-wise LargeItemSet.
+	 * 
+	 * @param prefix
+	 *            the positions in the 1-largeItems of the prefix's items
+	 * @param items
+	 *            the positions of the items extending the prefix to a large
+	 *            item
+	 * @param tidSets
+	 *            the bitsets of the prefix extended with each item
+	 */
+	private void mine(int[] prefix, int[] items, long[][] tidSets) {
+
+		for (int i = 0; i < items.length; i++) {
+			MiningMonitor.current().check();
+			int[] itemSet = new int[prefix.length + 1];
+			System.arraycopy(prefix, 0, itemSet, 0, prefix.length);
+			itemSet[prefix.length] = items[i];
+
+			int index = m_OneLargeItems.elementAt(items[i]).getIndexs()[0];
+			int[] newItems = new int[items.length - i - 1];
+			long[][] newTidSets = new long[newItems.length][];
+			int numNewItems = 0;
+
+			for (int j = i + 1; j < items.length; j++) {
+				if (m_OneLargeItems.elementAt(items[j]).getIndexs()[0] == index)
+					continue;
+
+				long[] tidSet = new long[tidSets[i].length];
+				int weight = 0;
+				for (int w = 0; w < tidSet.length; w++) {
+					tidSet[w] = tidSets[i][w] & tidSets[j][w];
+					weight += Long.bitCount(tidSet[w]);
+				}
+
+				if (weight > m_minWeight) {
+					addLargeItem(itemSet, items[j], weight);
+					newItems[numNewItems] = items[j];
+					newTidSets[numNewItems++] = tidSet;
+				}
+			}
+
+			if (numNewItems > 0) {
+				int[] nextItems = new int[numNewItems];
+				long[][] nextTidSets = new long[numNewItems][];
+				System.arraycopy(newItems, 0, nextItems, 0, numNewItems);
+				System.arraycopy(newTidSets, 0, nextTidSets, 0, numNewItems);
+				mine(itemSet, nextItems, nextTidSets);
+			}
+		}
+	}
+
+	/**
+	 * Adds the large item made of the itemset extended with an item to the set
+	 * of large items of its size.
+	 * 
+	 * @param itemSet
+	 *            the positions in the 1-largeItems of the itemset's items
+	 * @param item
+	 *            the position of the item extending the itemset
+	 * @param weight
+	 *            the large item's weight
+	 */
+	private void addLargeItem(int[] itemSet, int item, int weight) {
+
+		int[] items = new int[itemSet.length + 1];
+		System.arraycopy(itemSet, 0, items, 0, itemSet.length);
+		items[itemSet.length] = item;
+
+		while (m_Ls.size() < items.length) {
+			LargeItemSet largeItemSet = new LargeItemSet();
+			largeItemSet.setOption(m_minWeight);
+			m_Ls.add(largeItemSet);
+		}
+		m_Ls.elementAt(items.length - 1).addLargeItem(m_OneLargeItems, items,
+				weight);
+	}
+
+}
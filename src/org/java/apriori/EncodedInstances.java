@@ -0,0 +1,305 @@
+/*
+ *    EncodedInstances.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Vector;
+
+import org.java.apriori.TxtReader.Attribute;
+
+/**
+ * Stores instances dictionary-encoded. Each attribute's values are mapped once
+ * to dense int codes, the code of a value is its index in the attribute's
+ * values, and the instances are held column by column as int arrays.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class EncodedInstances {
+
+	/** The default capacity of the columns. */
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/** The vector for attributes, the dictionaries of the codes. */
+	private Vector<Attribute> m_Attributes;
+
+	/** The columns of codes, one int array for each attribute. */
+	private int[][] m_Columns;
+
+	/** The number of instances. */
+	private int m_NumInstances;
+
+	/**
+	 * Creates an empty set of encoded instances.
+	 * 
+	 * @param attributes
+	 *            the vector for attributes
+	 */
+	public EncodedInstances(Vector<Attribute> attributes) {
+
+		this(attributes, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates an empty set of encoded instances with the initial capacity.
+	 * 
+	 * @param attributes
+	 *            the vector for attributes
+	 * @param capacity
+	 *            the initial number of instances the columns can hold
+	 */
+	public EncodedInstances(Vector<Attribute> attributes, int capacity) {
+
+		m_Attributes = attributes;
+		m_Columns = new int[attributes.size()][Math.max(capacity, 1)];
+		m_NumInstances = 0;
+	}
+
+	/**
+	 * Creates a set of encoded instances over existing columns.
+	 * 
+	 * @param attributes
+	 *            the vector for attributes
+	 * @param columns
+	 *            the columns of codes, one int array for each attribute
+	 * @param numInstances
+	 *            the number of instances
+	 */
+	public EncodedInstances(Vector<Attribute> attributes, int[][] columns,
+			int numInstances) {
+
+		m_Attributes = attributes;
+		m_Columns = columns;
+		m_NumInstances = numInstances;
+	}
+
+	/**
+	 * Returns the instances pretreated. The columns with a code map are mapped
+	 * once to the codes of the attributes pretreated, the other columns are
+	 * shared with these instances.
+	 * 
+	 * @param pretreatAttributes
+	 *            the vector of attributes pretreated
+	 * @param codeMaps
+	 *            the maps from the codes of these instances to the codes of
+	 *            the attributes pretreated, null for an attribute not
+	 *            pretreated
+	 * @return the instances pretreated
+	 */
+	public EncodedInstances pretreat(Vector<Attribute> pretreatAttributes,
+			int[][] codeMaps) {
+
+		int[][] columns = new int[m_Columns.length][];
+
+		for (int i = 0; i < m_Columns.length; i++) {
+			if (codeMaps == null || codeMaps[i] == null) {
+				columns[i] = m_Columns[i];
+				continue;
+			}
+
+			int[] column = m_Columns[i];
+			int[] codeMap = codeMaps[i];
+			columns[i] = new int[m_NumInstances];
+			for (int n = 0; n < m_NumInstances; n++)
+				columns[i][n] = codeMap[column[n]];
+		}
+
+		return new EncodedInstances(pretreatAttributes, columns, m_NumInstances);
+	}
+
+	/**
+	 * Returns a copy of a range of these instances.
+	 * 
+	 * @param from
+	 *            the index of the first instance, inclusive
+	 * @param to
+	 *            the index of the last instance, exclusive
+	 * @return the copy of the range of instances
+	 */
+	public EncodedInstances copy(int from, int to) {
+
+		int[][] columns = new int[m_Columns.length][to - from];
+		for (int i = 0; i < m_Columns.length; i++)
+			System.arraycopy(m_Columns[i], from, columns[i], 0, to - from);
+
+		return new EncodedInstances(m_Attributes, columns, to - from);
+	}
+
+	/**
+	 * Adds an instance given as the codes of its values.
+	 * 
+	 * @param codes
+	 *            the codes of the instance's values, one for each attribute
+	 */
+	public void add(int[] codes) {
+
+		if (m_NumInstances == capacity())
+			ensureCapacity(m_NumInstances + 1);
+
+		for (int i = 0; i < m_Columns.length; i++)
+			m_Columns[i][m_NumInstances] = codes[i];
+		m_NumInstances++;
+	}
+
+	/**
+	 * Adds the instances of another set, the codes of which are mapped to the
+	 * codes of these instances.
+	 * 
+	 * @param instances
+	 *            the instances to add
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to add to the codes
+	 *            of these instances, one for each attribute
+	 */
+	public void add(EncodedInstances instances, int[][] codeMaps) {
+
+		int numInstances = instances.numInstances();
+		ensureCapacity(m_NumInstances + numInstances);
+
+		for (int i = 0; i < m_Columns.length; i++) {
+			int[] column = instances.getColumn(i);
+			int[] codeMap = codeMaps[i];
+			int[] target = m_Columns[i];
+			for (int n = 0; n < numInstances; n++)
+				target[m_NumInstances + n] = codeMap[column[n]];
+		}
+		m_NumInstances += numInstances;
+	}
+
+	/**
+	 * Grows the columns so that they can hold at least the given number of
+	 * instances.
+	 * 
+	 * @param capacity
+	 *            the minimum number of instances
+	 */
+	public void ensureCapacity(int capacity) {
+
+		if (capacity <= capacity())
+			return;
+
+		int newCapacity = Math.max(capacity, capacity() + (capacity() >> 1));
+		for (int i = 0; i < m_Columns.length; i++) {
+			int[] column = new int[newCapacity];
+			System.arraycopy(m_Columns[i], 0, column, 0, m_NumInstances);
+			m_Columns[i] = column;
+		}
+	}
+
+	/**
+	 * Trims the columns to the number of instances.
+	 */
+	public void trimToSize() {
+
+		if (m_NumInstances == capacity() || m_Columns.length == 0)
+			return;
+
+		for (int i = 0; i < m_Columns.length; i++) {
+			int[] column = new int[m_NumInstances];
+			System.arraycopy(m_Columns[i], 0, column, 0, m_NumInstances);
+			m_Columns[i] = column;
+		}
+	}
+
+	/**
+	 * Returns the number of instances the columns can hold.
+	 * 
+	 * @return the number of instances the columns can hold
+	 */
+	private int capacity() {
+
+		return m_Columns.length > 0 ? m_Columns[0].length : Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Returns the number of instances.
+	 * 
+	 * @return the number of instances
+	 */
+	public int numInstances() {
+
+		return m_NumInstances;
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 * 
+	 * @return the number of attributes
+	 */
+	public int numAttributes() {
+
+		return m_Columns.length;
+	}
+
+	/**
+	 * Returns the vector of attributes.
+	 * 
+	 * @return the vector of attributes
+	 */
+	public Vector<Attribute> getAttributes() {
+
+		return m_Attributes;
+	}
+
+	/**
+	 * Returns the column of codes for the attribute. Only the first
+	 * numInstances() codes of the column are valid.
+	 * 
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the column of codes for the attribute
+	 */
+	public int[] getColumn(int attribute) {
+
+		return m_Columns[attribute];
+	}
+
+	/**
+	 * Returns the code of an instance's value.
+	 * 
+	 * @param index
+	 *            the index of the instance
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the code of the instance's value
+	 */
+	public int code(int index, int attribute) {
+
+		return m_Columns[attribute][index];
+	}
+
+	/**
+	 * Returns an instance's value.
+	 * 
+	 * @param index
+	 *            the index of the instance
+	 * @param attribute
+	 *            the index of the attribute
+	 * @return the instance's value
+	 */
+	public String value(int index, int attribute) {
+
+		return m_Attributes.elementAt(attribute).getValues()
+				.elementAt(m_Columns[attribute][index]);
+	}
+
+	/**
+	 * Returns an instance as a string array.
+	 * 
+	 * @param index
+	 *            the index of the instance
+	 * @return the instance as a string array
+	 */
+	public String[] instance(int index) {
+
+		String[] instance = new String[m_Columns.length];
+		for (int i = 0; i < m_Columns.length; i++)
+			instance[i] = value(index, i);
+
+		return instance;
+	}
+
+}
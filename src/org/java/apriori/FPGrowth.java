@@ -0,0 +1,373 @@
+/*
+ *    FPGrowth.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Vector;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * Finds all sets of large items with a frequent pattern tree (FP-Growth). The
+ * instances are read twice: the weights of the 1-largeItems come from the
+ * attributes, then the instances are inserted in a prefix tree with their
+ * items ordered by weight, and the tree is mined recursively with conditional
+ * trees, without any candidate generation.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class FPGrowth {
+
+	/** The set of all sets of itemsets L. */
+	private Vector<LargeItemSet> m_Ls;
+
+	/** The set of 1-largeItems. */
+	private Vector<LargeItem> m_OneLargeItems;
+
+	/** The minimum weight. */
+	private int m_minWeight;
+
+	/** The position in the 1-largeItems of each item, ordered by weight. */
+	private int[] m_Items;
+
+	/** The large items found for each size, as items followed by weight. */
+	private Vector<Vector<int[]>> m_Found;
+
+	/**
+	 * A node of a frequent pattern tree.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Node {
+
+		/** The node's item, its rank in the items ordered by weight. */
+		private int m_Item;
+
+		/** The weight of the path from the root to this node. */
+		private int m_Weight;
+
+		/** The parent node. */
+		private Node m_Parent;
+
+		/** The first child node. */
+		private Node m_Child;
+
+		/** The next sibling node. */
+		private Node m_Sibling;
+
+		/** The next node of the same item. */
+		private Node m_Next;
+
+		/**
+		 * Creates a node.
+		 * 
+		 * @param item
+		 *            the node's item
+		 * @param parent
+		 *            the parent node
+		 */
+		private Node(int item, Node parent) {
+
+			m_Item = item;
+			m_Parent = parent;
+		}
+
+	}
+
+	/**
+	 * A frequent pattern tree.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Tree {
+
+		/** The root node. */
+		private Node m_Root;
+
+		/** The first node of each item. */
+		private Node[] m_Heads;
+
+		/** The weight of each item in this tree. */
+		private int[] m_Weights;
+
+		/**
+		 * Creates an empty tree.
+		 * 
+		 * @param numItems
+		 *            the number of items
+		 */
+		private Tree(int numItems) {
+
+			m_Root = new Node(-1, null);
+			m_Heads = new Node[numItems];
+			m_Weights = new int[numItems];
+		}
+
+		/**
+		 * Inserts the items into this tree.
+		 * 
+		 * @param items
+		 *            the items, ordered by rank
+		 * @param length
+		 *            the number of items
+		 * @param weight
+		 *            the weight of the items
+		 */
+		private void insert(int[] items, int length, int weight) {
+
+			Node node = m_Root;
+
+			for (int i = 0; i < length; i++) {
+				Node child = node.m_Child;
+				while (child != null && child.m_Item != items[i])
+					child = child.m_Sibling;
+
+				if (child == null) {
+					child = new Node(items[i], node);
+					child.m_Sibling = node.m_Child;
+					node.m_Child = child;
+					child.m_Next = m_Heads[items[i]];
+					m_Heads[items[i]] = child;
+				}
+
+				child.m_Weight += weight;
+				m_Weights[items[i]] += weight;
+				node = child;
+			}
+		}
+
+	}
+
+	/**
+	 * Finds all sets of large items from the set of 1-largeItems and the
+	 * encoded instances.
+	 * 
+	 * @param oneLargeItemSet
+	 *            the set of 1-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 */
+	public FPGrowth(LargeItemSet oneLargeItemSet, EncodedInstances instances,
+			int[][] codeMaps) {
+
+		m_Ls = new Vector<LargeItemSet>();
+		m_OneLargeItems = oneLargeItemSet.getLargeItemSet();
+		m_minWeight = oneLargeItemSet.getOption();
+		m_Found = new Vector<Vector<int[]>>();
+
+		if (oneLargeItemSet.numLargeItem() > 0) {
+			m_Ls.add(oneLargeItemSet);
+			findLargeItemSets(instances, codeMaps);
+		}
+	}
+
+	/**
+	 * Returns the set of all sets of large items, the k-th set holds the
+	 * (k+1)-largeItems.
+	 * 
+	 * @return the set of all sets of large items
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return m_Ls;
+	}
+
+	/**
+	 * Method that finds all k-largeItems (k > 1) for the encoded instances.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 */
+	private void findLargeItemSets(EncodedInstances instances, int[][] codeMaps) {
+
+		Tree tree = buildTree(instances, codeMaps);
+		mine(tree, new int[0]);
+
+		for (int k = 1; k < m_Found.size(); k++) {
+			LargeItemSet largeItemSet = new LargeItemSet();
+			largeItemSet.setOption(m_minWeight);
+
+			Vector<int[]> found = m_Found.elementAt(k);
+			final int size = k + 1;
+			Collections.sort(found, new Comparator<int[]>() {
+				public int compare(int[] a, int[] b) {
+					for (int i = 0; i < size; i++) {
+						if (a[i] != b[i])
+							return (a[i] < b[i]) ? -1 : 1;
+					}
+					return 0;
+				}
+			});
+
+			for (int[] largeItem : found) {
+				int[] items = new int[size];
+				System.arraycopy(largeItem, 0, items, 0, size);
+				largeItemSet.addLargeItem(m_OneLargeItems, items,
+						largeItem[size]);
+			}
+			m_Ls.add(largeItemSet);
+		}
+	}
+
+	/**
+	 * Builds the frequent pattern tree of the instances, the items of which
+	 * are ranked by descending weight.
+	 * 
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 * @return the frequent pattern tree
+	 */
+	private Tree buildTree(EncodedInstances instances, int[][] codeMaps) {
+
+		Integer[] order = new Integer[m_OneLargeItems.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				int weightA = m_OneLargeItems.elementAt(a).getWeight();
+				int weightB = m_OneLargeItems.elementAt(b).getWeight();
+				if (weightA != weightB)
+					return (weightA > weightB) ? -1 : 1;
+				return a.compareTo(b);
+			}
+		});
+
+		m_Items = new int[order.length];
+		int[] ranks = new int[order.length];
+		for (int i = 0; i < order.length; i++) {
+			m_Items[i] = order[i];
+			ranks[order[i]] = i;
+		}
+
+		int[][] positions = LargeItemSet.itemPositions(m_OneLargeItems,
+				instances.numAttributes());
+		int[][] columns = new int[positions.length][];
+		for (int i = 0; i < positions.length; i++) {
+			if (positions[i] != null)
+				columns[i] = instances.getColumn(i);
+		}
+
+		MiningMonitor monitor = MiningMonitor.current();
+		Tree tree = new Tree(m_Items.length);
+		int[] items = new int[positions.length];
+		for (int n = 0; n < instances.numInstances(); n++) {
+			int length = 0;
+			for (int i = 0; i < positions.length; i++) {
+				if (columns[i] == null)
+					continue;
+
+				int code = columns[i][n];
+				if (codeMaps != null && codeMaps[i] != null)
+					code = codeMaps[i][code];
+				if (code >= 0 && code < positions[i].length
+						&& positions[i][code] >= 0)
+					items[length++] = ranks[positions[i][code]];
+			}
+			Arrays.sort(items, 0, length);
+			tree.insert(items, length, 1);
+			if ((n + 1) % MiningMonitor.BLOCK_INSTANCES == 0)
+				monitor.scanned(MiningMonitor.BLOCK_INSTANCES);
+		}
+		MiningMetrics.getInstance().scanned(instances.numInstances());
+		monitor.scanned(instances.numInstances()
+				% MiningMonitor.BLOCK_INSTANCES);
+
+		return tree;
+	}
+
+	/**
+	 * Mines the frequent pattern tree of the instances containing the suffix.
+	 * 
+	 * @param tree
+	 *            the (conditional) frequent pattern tree
+	 * @param suffix
+	 *            the items contained in all instances of the tree
+	 */
+	private void mine(Tree tree, int[] suffix) {
+
+		int[] path = new int[m_Items.length];
+
+		for (int item = m_Items.length - 1; item >= 0; item--) {
+			if (tree.m_Weights[item] <= m_minWeight)
+				continue;
+
+			MiningMonitor.current().check();
+			int[] itemSet = new int[suffix.length + 1];
+			System.arraycopy(suffix, 0, itemSet, 0, suffix.length);
+			itemSet[suffix.length] = item;
+			found(itemSet, tree.m_Weights[item]);
+
+			// the weights of the items in the conditional pattern base
+			int[] weights = new int[item];
+			for (Node node = tree.m_Heads[item]; node != null; node = node.m_Next) {
+				for (Node parent = node.m_Parent; parent.m_Item >= 0; parent = parent.m_Parent)
+					weights[parent.m_Item] += node.m_Weight;
+			}
+
+			boolean empty = true;
+			for (int i = 0; i < item && empty; i++)
+				empty = weights[i] <= m_minWeight;
+			if (empty)
+				continue;
+
+			Tree conditionalTree = new Tree(m_Items.length);
+			for (Node node = tree.m_Heads[item]; node != null; node = node.m_Next) {
+				int length = 0;
+				for (Node parent = node.m_Parent; parent.m_Item >= 0; parent = parent.m_Parent) {
+					if (weights[parent.m_Item] > m_minWeight)
+						path[length++] = parent.m_Item;
+				}
+				for (int i = 0, j = length - 1; i < j; i++, j--) {
+					int temp = path[i];
+					path[i] = path[j];
+					path[j] = temp;
+				}
+				conditionalTree.insert(path, length, node.m_Weight);
+			}
+
+			mine(conditionalTree, itemSet);
+		}
+	}
+
+	/**
+	 * Records a large item found.
+	 * 
+	 * @param itemSet
+	 *            the ranks of the large item's items
+	 * @param weight
+	 *            the large item's weight
+	 */
+	private void found(int[] itemSet, int weight) {
+
+		while (m_Found.size() < itemSet.length)
+			m_Found.add(new Vector<int[]>());
+
+		// the positions in the 1-largeItems ordered, followed by the weight
+		int[] largeItem = new int[itemSet.length + 1];
+		for (int i = 0; i < itemSet.length; i++)
+			largeItem[i] = m_Items[itemSet[i]];
+		Arrays.sort(largeItem, 0, itemSet.length);
+		largeItem[itemSet.length] = weight;
+
+		m_Found.elementAt(itemSet.length - 1).add(largeItem);
+	}
+
+}
@@ -0,0 +1,180 @@
+/*
+ *    FUP.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+import org.java.apriori.TxtReader.Attribute;
+
+/**
+ * Updates all sets of large items when new instances are appended (FUP). The
+ * 1-largeItems come from the weights of the attributes. At each level, the
+ * candidates are counted in the new instances, and the weights of the
+ * candidates which were large items come from the old large items. A candidate
+ * which was not a large item can only become one if its weight in the new
+ * instances is above the growth of the minimum weight, and only those are
+ * counted in the old instances. The large items are the ones found from
+ * scratch, in the same order.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class FUP {
+
+	/** The set of all sets of itemsets L. */
+	private Vector<LargeItemSet> m_Ls;
+
+	/** The number of candidates counted in the old instances. */
+	private int m_NumRescanned;
+
+	/**
+	 * Updates the sets of large items of the old instances for the instances
+	 * appended.
+	 * 
+	 * @param ls
+	 *            the set of all sets of large items of the old instances,
+	 *            with their weights
+	 * @param pretreatAttributes
+	 *            the vector of attributes pretreated, with the weights of all
+	 *            instances
+	 * @param chooseAttributes
+	 *            the boolean array of choose attributes
+	 * @param instances
+	 *            the encoded instances, the old instances followed by the new
+	 *            ones
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param numOldInstances
+	 *            the number of old instances
+	 * @param minSupport
+	 *            the minimum support the old large items were found with
+	 * @param pool
+	 *            the pool counting the candidates, or null
+	 */
+	public FUP(Vector<LargeItemSet> ls, Vector<Attribute> pretreatAttributes,
+			boolean[] chooseAttributes, EncodedInstances instances,
+			int[][] codeMaps, int numOldInstances, double minSupport,
+			ForkJoinPool pool) {
+
+		m_Ls = new Vector<LargeItemSet>();
+
+		int numSupport = (int) (minSupport * instances.numInstances());
+		int oldNumSupport = (int) (minSupport * numOldInstances);
+
+		LargeItemSet largeItemSet = new LargeItemSet(pretreatAttributes,
+				chooseAttributes, numSupport);
+		for (int k = 1; largeItemSet.numLargeItem() > 0; k++) {
+			m_Ls.add(largeItemSet);
+			largeItemSet = update(largeItemSet,
+					(k < ls.size()) ? ls.elementAt(k) : null, instances,
+					codeMaps, numOldInstances, numSupport - oldNumSupport,
+					pool);
+		}
+	}
+
+	/**
+	 * Returns the set of all sets of large items, the k-th set holds the
+	 * (k+1)-largeItems.
+	 * 
+	 * @return the set of all sets of large items
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return m_Ls;
+	}
+
+	/**
+	 * Returns the number of candidates counted in the old instances.
+	 * 
+	 * @return the number of candidates counted in the old instances
+	 */
+	public int numRescanned() {
+
+		return m_NumRescanned;
+	}
+
+	/**
+	 * Finds the k-largeItems of all instances from the (k-1)-largeItems of all
+	 * instances and the k-largeItems of the old instances.
+	 * 
+	 * @param largeItemSet
+	 *            the set of (k-1)-largeItems of all instances
+	 * @param oldLargeItemSet
+	 *            the set of k-largeItems of the old instances, or null
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 * @param numOldInstances
+	 *            the number of old instances
+	 * @param minNewWeight
+	 *            the weight in the new instances a candidate which was not a
+	 *            large item must be above
+	 * @param pool
+	 *            the pool counting the candidates
+	 * @return the set of k-largeItems of all instances
+	 */
+	private LargeItemSet update(LargeItemSet largeItemSet,
+			LargeItemSet oldLargeItemSet, EncodedInstances instances,
+			int[][] codeMaps, int numOldInstances, int minNewWeight,
+			ForkJoinPool pool) {
+
+		LargeItemSet newLargeItemSet = new LargeItemSet();
+		int numSupport = largeItemSet.getOption();
+		newLargeItemSet.setOption(numSupport);
+
+		Vector<LargeItem> candidates = newLargeItemSet
+				.generateCandidates(largeItemSet);
+		if (candidates.isEmpty())
+			return newLargeItemSet;
+
+		HashMap<LargeItem, LargeItem> oldLargeItems = new HashMap<LargeItem, LargeItem>();
+		if (oldLargeItemSet != null) {
+			for (LargeItem largeItem : oldLargeItemSet.getLargeItemSet())
+				oldLargeItems.put(largeItem, largeItem);
+		}
+
+		int[] weights = new CandidateTrie(candidates).count(instances,
+				codeMaps, numOldInstances, instances.numInstances(), pool);
+
+		Vector<LargeItem> rescan = new Vector<LargeItem>();
+		int[] rescanIndexs = new int[candidates.size()];
+		for (int i = 0; i < candidates.size(); i++) {
+			LargeItem oldLargeItem = oldLargeItems.get(candidates.elementAt(i));
+			if (oldLargeItem != null) {
+				weights[i] += oldLargeItem.getWeight();
+			} else if (weights[i] > minNewWeight) {
+				rescanIndexs[rescan.size()] = i;
+				rescan.add(candidates.elementAt(i));
+			}
+		}
+
+		if (!rescan.isEmpty()) {
+			m_NumRescanned += rescan.size();
+			int[] oldWeights = new CandidateTrie(rescan).count(instances,
+					codeMaps, 0, numOldInstances, pool);
+			for (int i = 0; i < rescan.size(); i++)
+				weights[rescanIndexs[i]] += oldWeights[i];
+		}
+
+		for (int i = 0; i < candidates.size(); i++) {
+			if (weights[i] > numSupport) {
+				LargeItem candidate = candidates.elementAt(i);
+				newLargeItemSet.addLargeItem(candidate.getValues(),
+						candidate.getIndexs(), candidate.getCodes(), weights[i]);
+			}
+		}
+
+		return newLargeItemSet;
+	}
+
+}
@@ -0,0 +1,396 @@
+/*
+ *    Generator.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates synthetic instances in TXT format, in the style of the IBM Quest
+ * generator. Each attribute takes its values with a Zipf distribution of the
+ * given skew. Patterns of items are planted: each pattern shares a fraction of
+ * its items with the previous one, has a weight drawn from an exponential
+ * distribution and a corruption level drawn from a normal distribution. Each
+ * instance picks a pattern by weight and takes each of its items unless the
+ * item is corrupted. The instances are generated one at a time from a seed, so
+ * any number of them can be written with constant memory, always the same for
+ * the same seed.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class Generator {
+
+	/** The number of attributes. */
+	private int m_NumAttributes;
+
+	/** The number of values of each attribute. */
+	private int[] m_Cardinalities;
+
+	/** The cumulative distribution of the values of each attribute. */
+	private double[][] m_ValueDistributions;
+
+	/** The attribute index of each item of each pattern. */
+	private int[][] m_PatternIndexs;
+
+	/** The value code of each item of each pattern. */
+	private int[][] m_PatternCodes;
+
+	/** The cumulative distribution of the patterns. */
+	private double[] m_PatternDistribution;
+
+	/** The corruption level of each pattern. */
+	private double[] m_Corruptions;
+
+	/** The random generator of the instances. */
+	private Random m_Random;
+
+	/**
+	 * Creates a generator with the same cardinality for all attributes.
+	 * 
+	 * @param numAttributes
+	 *            the number of attributes
+	 * @param cardinality
+	 *            the number of values of each attribute
+	 * @param skew
+	 *            the exponent of the Zipf distribution of the values, 0 for a
+	 *            uniform distribution
+	 * @param numPatterns
+	 *            the number of patterns planted
+	 * @param patternLength
+	 *            the average number of items of a pattern
+	 * @param seed
+	 *            the seed of the random generator
+	 */
+	public Generator(int numAttributes, int cardinality, double skew,
+			int numPatterns, double patternLength, long seed) {
+
+		this(cardinalities(numAttributes, cardinality), skew, numPatterns,
+				patternLength, seed);
+	}
+
+	/**
+	 * Creates a generator.
+	 * 
+	 * @param cardinalities
+	 *            the number of values of each attribute
+	 * @param skew
+	 *            the exponent of the Zipf distribution of the values, 0 for a
+	 *            uniform distribution
+	 * @param numPatterns
+	 *            the number of patterns planted
+	 * @param patternLength
+	 *            the average number of items of a pattern
+	 * @param seed
+	 *            the seed of the random generator
+	 * @throws IllegalArgumentException
+	 *             if there is no attribute, or an attribute has no value
+	 */
+	public Generator(int[] cardinalities, double skew, int numPatterns,
+			double patternLength, long seed) {
+
+		if (cardinalities.length == 0)
+			throw new IllegalArgumentException("No attribute");
+
+		m_NumAttributes = cardinalities.length;
+		m_Cardinalities = cardinalities.clone();
+		m_Random = new Random(seed);
+
+		m_ValueDistributions = new double[m_NumAttributes][];
+		for (int i = 0; i < m_NumAttributes; i++) {
+			if (cardinalities[i] < 1)
+				throw new IllegalArgumentException("Attribute " + i
+						+ " has no value");
+			m_ValueDistributions[i] = zipf(cardinalities[i], skew);
+		}
+
+		generatePatterns(Math.max(numPatterns, 0), patternLength);
+	}
+
+	/**
+	 * Returns the same cardinality for all attributes.
+	 * 
+	 * @param numAttributes
+	 *            the number of attributes
+	 * @param cardinality
+	 *            the number of values of each attribute
+	 * @return the cardinality of each attribute
+	 */
+	private static int[] cardinalities(int numAttributes, int cardinality) {
+
+		int[] cardinalities = new int[Math.max(numAttributes, 0)];
+		Arrays.fill(cardinalities, cardinality);
+
+		return cardinalities;
+	}
+
+	/**
+	 * Returns the cumulative Zipf distribution of the values.
+	 * 
+	 * @param cardinality
+	 *            the number of values
+	 * @param skew
+	 *            the exponent of the distribution
+	 * @return the cumulative distribution
+	 */
+	private static double[] zipf(int cardinality, double skew) {
+
+		double[] distribution = new double[cardinality];
+		double sum = 0;
+		for (int j = 0; j < cardinality; j++) {
+			sum += 1 / Math.pow(j + 1, skew);
+			distribution[j] = sum;
+		}
+		for (int j = 0; j < cardinality; j++)
+			distribution[j] /= sum;
+
+		return distribution;
+	}
+
+	/**
+	 * Generates the patterns, their weights and their corruption levels.
+	 * 
+	 * @param numPatterns
+	 *            the number of patterns
+	 * @param patternLength
+	 *            the average number of items of a pattern
+	 */
+	private void generatePatterns(int numPatterns, double patternLength) {
+
+		m_PatternIndexs = new int[numPatterns][];
+		m_PatternCodes = new int[numPatterns][];
+		m_PatternDistribution = new double[numPatterns];
+		m_Corruptions = new double[numPatterns];
+
+		int[] indexs = new int[m_NumAttributes];
+		double sum = 0;
+
+		for (int p = 0; p < numPatterns; p++) {
+			int length = Math.max(1,
+					Math.min(m_NumAttributes, poisson(patternLength - 1) + 1));
+			for (int i = 0; i < m_NumAttributes; i++)
+				indexs[i] = i;
+
+			// the items shared with the previous pattern come first
+			int[] codes = new int[m_NumAttributes];
+			Arrays.fill(codes, -1);
+			int numShared = 0;
+			if (p > 0) {
+				int[] previous = m_PatternIndexs[p - 1].clone();
+				numShared = (int) Math.min(previous.length, Math.min(length,
+						Math.round(-0.5 * Math.log(1 - m_Random.nextDouble())
+								* length)));
+				for (int n = 0; n < numShared; n++) {
+					int k = n + m_Random.nextInt(previous.length - n);
+					int index = previous[k];
+					previous[k] = previous[n];
+					previous[n] = index;
+					codes[index] = m_PatternCodes[p - 1][Arrays.binarySearch(
+							m_PatternIndexs[p - 1], index)];
+				}
+				// the shared attributes are moved to the front
+				int front = 0;
+				for (int i = 0; i < m_NumAttributes; i++) {
+					if (codes[i] >= 0) {
+						indexs[i] = indexs[front];
+						indexs[front++] = i;
+					}
+				}
+			}
+
+			for (int n = numShared; n < length; n++) {
+				int k = n + m_Random.nextInt(m_NumAttributes - n);
+				int index = indexs[k];
+				indexs[k] = indexs[n];
+				indexs[n] = index;
+				codes[index] = m_Random.nextInt(m_Cardinalities[index]);
+			}
+
+			m_PatternIndexs[p] = Arrays.copyOf(indexs, length);
+			Arrays.sort(m_PatternIndexs[p]);
+			m_PatternCodes[p] = new int[length];
+			for (int n = 0; n < length; n++)
+				m_PatternCodes[p][n] = codes[m_PatternIndexs[p][n]];
+
+			sum += -Math.log(1 - m_Random.nextDouble());
+			m_PatternDistribution[p] = sum;
+			m_Corruptions[p] = Math.max(0,
+					Math.min(1, 0.5 + 0.1 * m_Random.nextGaussian()));
+		}
+
+		for (int p = 0; p < numPatterns; p++)
+			m_PatternDistribution[p] /= sum;
+	}
+
+	/**
+	 * Returns a number drawn from a Poisson distribution.
+	 * 
+	 * @param mean
+	 *            the mean of the distribution
+	 * @return the number drawn
+	 */
+	private int poisson(double mean) {
+
+		if (mean <= 0)
+			return 0;
+
+		double limit = Math.exp(-mean), product = m_Random.nextDouble();
+		int n = 0;
+		while (product > limit) {
+			product *= m_Random.nextDouble();
+			n++;
+		}
+
+		return n;
+	}
+
+	/**
+	 * Returns the index of the first value of a cumulative distribution at or
+	 * above a random number.
+	 * 
+	 * @param distribution
+	 *            the cumulative distribution
+	 * @return the index drawn
+	 */
+	private int draw(double[] distribution) {
+
+		int index = Arrays.binarySearch(distribution, m_Random.nextDouble());
+		if (index < 0)
+			index = -index - 1;
+
+		return Math.min(index, distribution.length - 1);
+	}
+
+	/**
+	 * Returns the number of attributes.
+	 * 
+	 * @return the number of attributes
+	 */
+	public int numAttributes() {
+
+		return m_NumAttributes;
+	}
+
+	/**
+	 * Returns the name of an attribute.
+	 * 
+	 * @param index
+	 *            the attribute index
+	 * @return the name of the attribute
+	 */
+	public String attributeName(int index) {
+
+		return "A" + (index + 1);
+	}
+
+	/**
+	 * Returns the value of an attribute with a code.
+	 * 
+	 * @param index
+	 *            the attribute index
+	 * @param code
+	 *            the value code
+	 * @return the value
+	 */
+	public String value(int index, int code) {
+
+		return "v" + code;
+	}
+
+	/**
+	 * Generates the value codes of the next instance.
+	 * 
+	 * @param codes
+	 *            the array receiving the code of each attribute's value
+	 */
+	public void nextInstance(int[] codes) {
+
+		for (int i = 0; i < m_NumAttributes; i++)
+			codes[i] = draw(m_ValueDistributions[i]);
+
+		if (m_PatternDistribution.length > 0) {
+			int p = draw(m_PatternDistribution);
+			for (int n = 0; n < m_PatternIndexs[p].length; n++) {
+				if (m_Random.nextDouble() >= m_Corruptions[p])
+					codes[m_PatternIndexs[p][n]] = m_PatternCodes[p][n];
+			}
+		}
+	}
+
+	/**
+	 * Writes the attributes' names and the next instances in TXT format.
+	 * 
+	 * @param writer
+	 *            the writer
+	 * @param numInstances
+	 *            the number of instances
+	 * @throws IOException
+	 *             if the instances can't be written
+	 */
+	public void write(Writer writer, long numInstances) throws IOException {
+
+		for (int i = 0; i < m_NumAttributes; i++) {
+			if (i > 0)
+				writer.write('\t');
+			writer.write(attributeName(i));
+		}
+		writer.write('\n');
+
+		int[] codes = new int[m_NumAttributes];
+		for (long n = 0; n < numInstances; n++) {
+			nextInstance(codes);
+			for (int i = 0; i < m_NumAttributes; i++) {
+				if (i > 0)
+					writer.write('\t');
+				writer.write(value(i, codes[i]));
+			}
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args
+	 *            should contain the number of instances, the number of
+	 *            attributes, the cardinality, the skew, the number of
+	 *            patterns, the average pattern length, the seed and
+	 *            optionally the name of the output file
+	 * @throws IOException
+	 *             if the instances can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length < 7) {
+			System.out.println("\nUsage: " + Generator.class.getName()
+					+ " <instances> <attributes> <cardinality> <skew>"
+					+ " <patterns> <length> <seed> [<output>]\n");
+			return;
+		}
+
+		Generator generator = new Generator(Integer.parseInt(args[1]),
+				Integer.parseInt(args[2]), Double.parseDouble(args[3]),
+				Integer.parseInt(args[4]), Double.parseDouble(args[5]),
+				Long.parseLong(args[6]));
+
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				(args.length > 7) ? new FileOutputStream(args[7]) : System.out,
+				"UTF-8"), 1 << 16);
+		try {
+			generator.write(writer, Long.parseLong(args[0]));
+		} finally {
+			writer.close();
+		}
+	}
+
+}
@@ -0,0 +1,367 @@
+/*
+ *    LCM.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Vector;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * Finds the closed or the maximal large items (LCM), with the TID-bitsets of
+ * Eclat. A large item is closed if no large item containing it has the same
+ * weight, and maximal if no large item contains it. The closed large items are
+ * visited depth first by prefix preserving closure extension: a closed large
+ * item is extended with an item after its core item, and the closure of the
+ * extension is kept only if it adds no item before that item, so each closed
+ * large item is found once and the others are never held. The weight of any
+ * large item is the highest weight of the closed large items containing it.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class LCM {
+
+	/** The set of all sets of closed or maximal itemsets L. */
+	private Vector<LargeItemSet> m_Ls;
+
+	/** The set of 1-largeItems. */
+	private Vector<LargeItem> m_OneLargeItems;
+
+	/** The bitsets of the 1-largeItems. */
+	private long[][] m_TidSets;
+
+	/** The minimum weight. */
+	private int m_minWeight;
+
+	/** Whether only the maximal large items are kept. */
+	private boolean m_Maximal;
+
+	/**
+	 * The large items found by size, as their positions in the 1-largeItems
+	 * followed by their weight.
+	 */
+	private Vector<Vector<int[]>> m_Found;
+
+	/**
+	 * Finds the closed or the maximal large items from the set of
+	 * 1-largeItems and the encoded instances.
+	 * 
+	 * @param oneLargeItemSet
+	 *            the set of 1-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param maximal
+	 *            true to keep only the maximal large items
+	 */
+	public LCM(LargeItemSet oneLargeItemSet, EncodedInstances instances,
+			int[][] codeMaps, boolean maximal) {
+
+		m_Ls = new Vector<LargeItemSet>();
+		m_OneLargeItems = oneLargeItemSet.getLargeItemSet();
+		m_minWeight = oneLargeItemSet.getOption();
+		m_Maximal = maximal;
+		m_Found = new Vector<Vector<int[]>>();
+
+		if (oneLargeItemSet.numLargeItem() == 0)
+			return;
+
+		m_TidSets = Eclat.tidSets(m_OneLargeItems, instances, codeMaps);
+
+		// the closure of the empty itemset, the items of all instances
+		int numInstances = instances.numInstances();
+		long[] tidSet = new long[(numInstances + 63) >>> 6];
+		for (int n = 0; n < numInstances; n++)
+			tidSet[n >>> 6] |= 1L << n;
+		int[] itemSet = closure(new int[0], tidSet, numInstances, -1);
+		if (itemSet.length > 0)
+			found(itemSet, tidSet, numInstances);
+
+		mine(itemSet, tidSet, -1);
+		m_TidSets = null;
+
+		addLargeItems();
+	}
+
+	/**
+	 * Returns the set of all sets of closed or maximal large items, the k-th
+	 * set holds the (k+1)-largeItems.
+	 * 
+	 * @return the set of all sets of closed or maximal large items
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return m_Ls;
+	}
+
+	/**
+	 * Returns the weight of a large item from the closed large items, the
+	 * highest weight of the ones containing it.
+	 * 
+	 * @param ls
+	 *            the set of all sets of closed large items
+	 * @param largeItem
+	 *            the large item
+	 * @return the weight of the large item, or 0 if it is not a large item
+	 */
+	public static int weight(Vector<LargeItemSet> ls, LargeItem largeItem) {
+
+		int weight = 0;
+
+		for (int k = largeItem.numValuesInItem() - 1; k < ls.size(); k++) {
+			for (LargeItem closed : ls.elementAt(k).getLargeItemSet()) {
+				if (closed.getWeight() > weight && closed.contains(largeItem))
+					weight = closed.getWeight();
+			}
+		}
+
+		return weight;
+	}
+
+	/**
+	 * Returns the closed or the maximal large items of all sets of large
+	 * items, in the same order.
+	 * 
+	 * @param ls
+	 *            the set of all sets of large items
+	 * @param maximal
+	 *            true to keep only the maximal large items
+	 * @return the set of all sets of closed or maximal large items
+	 */
+	public static Vector<LargeItemSet> filter(Vector<LargeItemSet> ls,
+			boolean maximal) {
+
+		Vector<LargeItemSet> filtered = new Vector<LargeItemSet>();
+
+		for (int k = 0; k < ls.size(); k++) {
+			HashMap<LargeItem, LargeItem> largeItems = new HashMap<LargeItem, LargeItem>();
+			for (LargeItem largeItem : ls.elementAt(k).getLargeItemSet())
+				largeItems.put(largeItem, largeItem);
+
+			// the k-largeItems contained in a (k+1)-largeItem of the same
+			// weight, or of any weight for the maximal ones
+			HashSet<LargeItem> covered = new HashSet<LargeItem>();
+			if (k + 1 < ls.size()) {
+				int[] positions = new int[k + 1];
+				for (LargeItem largeItem : ls.elementAt(k + 1).getLargeItemSet()) {
+					for (int i = 0; i <= k + 1; i++) {
+						for (int j = 0, n = 0; j <= k + 1; j++) {
+							if (j != i)
+								positions[n++] = j;
+						}
+						LargeItem subset = largeItems.get(largeItem
+								.subset(positions));
+						if (subset != null
+								&& (maximal || subset.getWeight() == largeItem
+										.getWeight()))
+							covered.add(subset);
+					}
+				}
+			}
+
+			LargeItemSet largeItemSet = new LargeItemSet();
+			largeItemSet.setOption(ls.elementAt(k).getOption());
+			for (LargeItem largeItem : ls.elementAt(k).getLargeItemSet()) {
+				if (!covered.contains(largeItem))
+					largeItemSet.getLargeItemSet().add(largeItem);
+			}
+			filtered.add(largeItemSet);
+		}
+
+		while (!filtered.isEmpty() && filtered.lastElement().numLargeItem() == 0)
+			filtered.removeElementAt(filtered.size() - 1);
+
+		return filtered;
+	}
+
+	/**
+	 * Finds depth first the closed large items extending a closed large item
+	 * with an item after its core item.
+	 * 
+	 * @param itemSet
+	 *            the positions in the 1-largeItems of the closed large item's
+	 *            items, in increasing order
+	 * @param tidSet
+	 *            the bitset of the closed large item
+	 * @param core
+	 *            the position of the item the closed large item was extended
+	 *            with, -1 for the closure of the empty itemset
+	 */
+	private void mine(int[] itemSet, long[] tidSet, int core) {
+
+		for (int e = core + 1; e < m_OneLargeItems.size(); e++) {
+			if (m_OneLargeItems.elementAt(e).getWeight() <= m_minWeight
+					|| contains(itemSet, e))
+				continue;
+
+			MiningMonitor.current().check();
+			long[] newTidSet = new long[tidSet.length];
+			int weight = 0;
+			for (int w = 0; w < newTidSet.length; w++) {
+				newTidSet[w] = tidSet[w] & m_TidSets[e][w];
+				weight += Long.bitCount(newTidSet[w]);
+			}
+			if (weight <= m_minWeight)
+				continue;
+
+			int[] newItemSet = closure(itemSet, newTidSet, weight, e);
+			if (newItemSet == null)
+				continue;
+
+			found(newItemSet, newTidSet, weight);
+			mine(newItemSet, newTidSet, e);
+		}
+	}
+
+	/**
+	 * Returns the closure of a closed large item extended with an item, the
+	 * items of all instances of the extension.
+	 * 
+	 * @param itemSet
+	 *            the positions of the closed large item's items
+	 * @param tidSet
+	 *            the bitset of the extension
+	 * @param weight
+	 *            the weight of the extension
+	 * @param e
+	 *            the position of the item of the extension, -1 for none
+	 * @return the positions of the closure's items in increasing order, or
+	 *         null if the closure adds an item before e
+	 */
+	private int[] closure(int[] itemSet, long[] tidSet, int weight, int e) {
+
+		Vector<Integer> closure = new Vector<Integer>();
+
+		for (int j = 0; j < m_OneLargeItems.size(); j++) {
+			if (j == e || contains(itemSet, j)) {
+				closure.add(j);
+				continue;
+			}
+			if (m_OneLargeItems.elementAt(j).getWeight() < weight
+					|| !covers(m_TidSets[j], tidSet))
+				continue;
+
+			if (j < e)
+				return null;
+			closure.add(j);
+		}
+
+		int[] items = new int[closure.size()];
+		for (int i = 0; i < items.length; i++)
+			items[i] = closure.elementAt(i);
+
+		return items;
+	}
+
+	/**
+	 * Keeps a closed large item, unless only the maximal ones are kept and an
+	 * item can extend it to a large item.
+	 * 
+	 * @param itemSet
+	 *            the positions of the closed large item's items
+	 * @param tidSet
+	 *            the bitset of the closed large item
+	 * @param weight
+	 *            the weight of the closed large item
+	 */
+	private void found(int[] itemSet, long[] tidSet, int weight) {
+
+		if (m_Maximal) {
+			for (int j = 0; j < m_OneLargeItems.size(); j++) {
+				if (m_OneLargeItems.elementAt(j).getWeight() <= m_minWeight
+						|| contains(itemSet, j))
+					continue;
+
+				int newWeight = 0;
+				for (int w = 0; w < tidSet.length; w++)
+					newWeight += Long.bitCount(tidSet[w] & m_TidSets[j][w]);
+				if (newWeight > m_minWeight)
+					return;
+			}
+		}
+
+		while (m_Found.size() < itemSet.length)
+			m_Found.add(new Vector<int[]>());
+
+		int[] largeItem = new int[itemSet.length + 1];
+		System.arraycopy(itemSet, 0, largeItem, 0, itemSet.length);
+		largeItem[itemSet.length] = weight;
+		m_Found.elementAt(itemSet.length - 1).add(largeItem);
+	}
+
+	/**
+	 * Adds the large items found to the sets of large items of their sizes,
+	 * ordered like the level-wise LargeItemSet.
+	 */
+	private void addLargeItems() {
+
+		for (int k = 0; k < m_Found.size(); k++) {
+			final int size = k + 1;
+			Vector<int[]> largeItems = m_Found.elementAt(k);
+			Collections.sort(largeItems, new Comparator<int[]>() {
+				public int compare(int[] a, int[] b) {
+					for (int i = 0; i < size; i++) {
+						if (a[i] != b[i])
+							return (a[i] < b[i]) ? -1 : 1;
+					}
+					return 0;
+				}
+			});
+
+			LargeItemSet largeItemSet = new LargeItemSet();
+			largeItemSet.setOption(m_minWeight);
+			for (int[] largeItem : largeItems) {
+				int[] items = new int[size];
+				System.arraycopy(largeItem, 0, items, 0, size);
+				largeItemSet.addLargeItem(m_OneLargeItems, items, largeItem[size]);
+			}
+			m_Ls.add(largeItemSet);
+		}
+		m_Found = null;
+	}
+
+	/**
+	 * Returns true if a bitset holds all bits of another.
+	 * 
+	 * @param a
+	 *            the bitset
+	 * @param b
+	 *            the other bitset
+	 * @return true if a holds all bits of b
+	 */
+	private static boolean covers(long[] a, long[] b) {
+
+		for (int w = 0; w < a.length; w++) {
+			if ((b[w] & ~a[w]) != 0)
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns true if positions in increasing order hold a position.
+	 * 
+	 * @param items
+	 *            the positions in increasing order
+	 * @param item
+	 *            the position
+	 * @return true if the positions hold the position
+	 */
+	private static boolean contains(int[] items, int item) {
+
+		return Arrays.binarySearch(items, item) >= 0;
+	}
+
+}
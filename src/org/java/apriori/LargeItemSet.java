@@ -8,7 +8,10 @@ package org.java.apriori;
 
 import java.io.File;
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 import org.java.apriori.TxtReader.Attribute;
 
@@ -26,13 +29,19 @@ public class LargeItemSet {
 	/** The minimum weight. */
 	private int m_minWeight;
 
+	/** The number of candidates counted. */
+	private int m_NumCandidates;
+
+	/** The number of candidates pruned because of an infrequent subset. */
+	private int m_NumPruned;
+
 	/**
 	 * The large item.
 	 * 
 	 * @author myluo
 	 * @version $Revision: 1512 $
 	 */
-	class LargeItem implements Serializable, Comparable<LargeItem> {
+	public class LargeItem implements Serializable, Comparable<LargeItem> {
 
 		/** for serialization */
 		private static final long serialVersionUID = 8947607543530804751L;
@@ -43,6 +52,9 @@ public class LargeItemSet {
 		/** The values's indexs of all attributes. */
 		private int[] m_Indexs;
 
+		/** The values's codes in the attributes pretreated. */
+		private int[] m_Codes;
+
 		/** The large item's weight in all instances. */
 		private int m_Weight;
 
@@ -84,6 +96,24 @@ public class LargeItemSet {
 			setWeight(weight);
 		}
 
+		/**
+		 * Creates a large item with values, indexs, codes and weight.
+		 * 
+		 * @param values
+		 *            the large item's values
+		 * @param indexs
+		 *            the large item's indexs
+		 * @param codes
+		 *            the large item's codes
+		 * @param weight
+		 *            the large item's weight
+		 */
+		public LargeItem(String[] values, int[] indexs, int[] codes, int weight) {
+
+			this(values, indexs, weight);
+			m_Codes = codes;
+		}
+
 		/**
 		 * Returns the number of large item values.
 		 * 
@@ -114,6 +144,41 @@ public class LargeItemSet {
 			return m_Indexs;
 		}
 
+		/**
+		 * Returns the values's codes as a int array.
+		 * 
+		 * @return the values's codes as a int array, or null if the large item
+		 *         is not encoded
+		 */
+		public int[] getCodes() {
+
+			return m_Codes;
+		}
+
+		/**
+		 * Returns true if the item at position i of this large item is the item
+		 * at position j of largeItem. The codes are compared if both large
+		 * items are encoded, otherwise the values are.
+		 * 
+		 * @param i
+		 *            the position in this large item
+		 * @param largeItem
+		 *            the other large item
+		 * @param j
+		 *            the position in largeItem
+		 * @return true if the items are equal, false otherwise
+		 */
+		private boolean equalsItem(int i, LargeItem largeItem, int j) {
+
+			if (m_Indexs[i] != largeItem.getIndexs()[j])
+				return false;
+
+			if (m_Codes != null && largeItem.getCodes() != null)
+				return m_Codes[i] == largeItem.getCodes()[j];
+
+			return m_Values[i].equals(largeItem.getValues()[j]);
+		}
+
 		/**
 		 * Sets the large item's weight.
 		 * 
@@ -148,8 +213,7 @@ public class LargeItemSet {
 			for (int i = 0, j = 0; i < largeItem.getIndexs().length; i++) {
 				for (; j < m_Indexs.length; j++) {
 
-					if (largeItem.getIndexs()[i] == m_Indexs[j]
-							&& largeItem.getValues()[i].equals(m_Values[j])) {
+					if (equalsItem(j, largeItem, i)) {
 						count++;
 						break;
 					}
@@ -177,17 +241,20 @@ public class LargeItemSet {
 			                                - largeItem.getValues().length];
 			int[] newIndexs = new int[m_Indexs.length
 			                          - largeItem.getIndexs().length];
+			int[] newCodes = (m_Codes != null) ? new int[newIndexs.length]
+					: null;
 			int index = 0;
 
 			for (int i = 0, j = 0; i < m_Indexs.length; i++) {
 				for (; j < largeItem.getIndexs().length; j++) {
 
-					if (largeItem.getIndexs()[j] == m_Indexs[i]
-							&& largeItem.getValues()[j].equals(m_Values[i])) {
+					if (equalsItem(i, largeItem, j)) {
 						break;
 					} else if (largeItem.getIndexs()[j] > m_Indexs[i]) {
-						newValues[index] = new String(m_Values[i]);
+						newValues[index] = m_Values[i];
 						newIndexs[index] = m_Indexs[i];
+						if (newCodes != null)
+							newCodes[index] = m_Codes[i];
 						index++;
 						break;
 					}
@@ -195,14 +262,39 @@ public class LargeItemSet {
 			}
 
 			while (index < newValues.length) {
-				newValues[index] = new String(m_Values[m_Values.length
-				                                       - newValues.length + index]);
-				newIndexs[index] = m_Indexs[m_Values.length - newValues.length
-				                            + index];
+				int i = m_Values.length - newValues.length + index;
+				newValues[index] = m_Values[i];
+				newIndexs[index] = m_Indexs[i];
+				if (newCodes != null)
+					newCodes[index] = m_Codes[i];
 				index++;
 			}
 
-			return new LargeItem(newValues, newIndexs, m_Weight);
+			return new LargeItem(newValues, newIndexs, newCodes, m_Weight);
+		}
+
+		/**
+		 * Returns the large item of the items at the given positions, without
+		 * weight.
+		 * 
+		 * @param positions
+		 *            the positions of the items, in increasing order
+		 * @return the large item of the items at the positions
+		 */
+		public LargeItem subset(int[] positions) {
+
+			String[] values = new String[positions.length];
+			int[] indexs = new int[positions.length];
+			int[] codes = (m_Codes != null) ? new int[positions.length] : null;
+
+			for (int i = 0; i < positions.length; i++) {
+				values[i] = m_Values[positions[i]];
+				indexs[i] = m_Indexs[positions[i]];
+				if (codes != null)
+					codes[i] = m_Codes[positions[i]];
+			}
+
+			return new LargeItem(values, indexs, codes, 0);
 		}
 
 		/**
@@ -229,8 +321,7 @@ public class LargeItemSet {
 				return 0;
 
 			for (int i = 0; i < m_Values.length - 1; i++) {
-				if (!(m_Indexs[i] == largeItem.getIndexs()[i] && m_Values[i]
-						.equals(largeItem.getValues()[i])))
+				if (!equalsItem(i, largeItem, i))
 					return 0;
 			}
 
@@ -238,6 +329,47 @@ public class LargeItemSet {
 			                                                              .getIndexs().length - 1]) ? 1 : -1;
 		}
 
+		/**
+		 * Returns true if the object is a large item with the same items.
+		 * 
+		 * @param obj
+		 *            the object to be compared
+		 * @return true if the large items have the same items, false otherwise
+		 */
+		public boolean equals(Object obj) {
+
+			if (this == obj)
+				return true;
+			if (!(obj instanceof LargeItem))
+				return false;
+
+			LargeItem largeItem = (LargeItem) obj;
+			if (m_Indexs.length != largeItem.getIndexs().length)
+				return false;
+
+			for (int i = 0; i < m_Indexs.length; i++) {
+				if (!equalsItem(i, largeItem, i))
+					return false;
+			}
+
+			return true;
+		}
+
+		/**
+		 * Returns a hash code of the large item's items.
+		 * 
+		 * @return a hash code of the large item's items
+		 */
+		public int hashCode() {
+
+			int hashCode = 1;
+			for (int i = 0; i < m_Indexs.length; i++)
+				hashCode = 31 * (31 * hashCode + m_Indexs[i])
+						+ ((m_Values[i] != null) ? m_Values[i].hashCode() : 0);
+
+			return hashCode;
+		}
+
 		/**
 		 * Returns a description of this large item.
 		 * 
@@ -282,6 +414,33 @@ public class LargeItemSet {
 		findOneLargeItemSet(pretreatAttributes, chooseAttributes);
 	}
 
+	/**
+	 * Creates a set of 1-largeItems from the attributes and the weights of
+	 * their values in the encoded instances, which may be only some of the
+	 * instances of the attributes.
+	 * 
+	 * @param pretreatAttributes
+	 *            the vector of attributes after pretreatment
+	 * @param chooseAttributes
+	 *            the boolean array of choose attributes
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param option
+	 *            the option is the minimum weight
+	 */
+	public LargeItemSet(Vector<Attribute> pretreatAttributes,
+			boolean[] chooseAttributes, EncodedInstances instances,
+			int[][] codeMaps, int option) {
+
+		this();
+		setOption(option);
+		findOneLargeItemSet(pretreatAttributes, chooseAttributes, instances,
+				codeMaps);
+	}
+
 	/**
 	 * Creates a set of k-largeItems from the set of (k-1)-largeItems and the
 	 * instances pretreated.
@@ -301,6 +460,47 @@ public class LargeItemSet {
 		findKLargeItemSet(largeItemSet, instances, pretreatOptions);
 	}
 
+	/**
+	 * Creates a set of k-largeItems from the set of (k-1)-largeItems and the
+	 * encoded instances.
+	 * 
+	 * @param largeItemSet
+	 *            the set of (k-1)-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 */
+	public LargeItemSet(LargeItemSet largeItemSet, EncodedInstances instances,
+			int[][] codeMaps) {
+
+		this(largeItemSet, instances, codeMaps, null);
+	}
+
+	/**
+	 * Creates a set of k-largeItems from the set of (k-1)-largeItems and the
+	 * encoded instances, counted in parallel by the pool.
+	 * 
+	 * @param largeItemSet
+	 *            the set of (k-1)-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param pool
+	 *            the pool counting partitions of the instances, or null to
+	 *            count in the calling thread
+	 */
+	public LargeItemSet(LargeItemSet largeItemSet, EncodedInstances instances,
+			int[][] codeMaps, ForkJoinPool pool) {
+
+		this();
+		setOption(largeItemSet.getOption());
+		findKLargeItemSet(largeItemSet, instances, codeMaps, pool);
+	}
+
 	/**
 	 * Sets the option. The option is the minimum weight.
 	 * 
@@ -332,6 +532,27 @@ public class LargeItemSet {
 		return m_LargeItemSet.size();
 	}
 
+	/**
+	 * Returns the number of k-itemset candidates counted.
+	 * 
+	 * @return the number of k-itemset candidates counted
+	 */
+	public int numCandidates() {
+
+		return m_NumCandidates;
+	}
+
+	/**
+	 * Returns the number of k-itemset candidates pruned before counting,
+	 * because one of their (k-1)-subsets is not a large item.
+	 * 
+	 * @return the number of k-itemset candidates pruned
+	 */
+	public int numPrunedCandidates() {
+
+		return m_NumPruned;
+	}
+
 	/**
 	 * Returns the set of large items.
 	 * 
@@ -342,6 +563,91 @@ public class LargeItemSet {
 		return m_LargeItemSet;
 	}
 
+	/**
+	 * Adds a large item to this set.
+	 * 
+	 * @param values
+	 *            the large item's values
+	 * @param indexs
+	 *            the large item's indexs
+	 * @param codes
+	 *            the large item's codes
+	 * @param weight
+	 *            the large item's weight
+	 * @return the large item added
+	 */
+	LargeItem addLargeItem(String[] values, int[] indexs, int[] codes,
+			int weight) {
+
+		LargeItem largeItem = new LargeItem(values, indexs, codes, weight);
+		m_LargeItemSet.add(largeItem);
+
+		return largeItem;
+	}
+
+	/**
+	 * Adds the large item made of some 1-largeItems to this set.
+	 * 
+	 * @param oneLargeItems
+	 *            the 1-largeItems
+	 * @param items
+	 *            the positions in the 1-largeItems of the large item's items,
+	 *            ordered by the indexs
+	 * @param weight
+	 *            the large item's weight
+	 * @return the large item added
+	 */
+	LargeItem addLargeItem(Vector<LargeItem> oneLargeItems, int[] items,
+			int weight) {
+
+		String[] values = new String[items.length];
+		int[] indexs = new int[items.length];
+		int[] codes = new int[items.length];
+
+		for (int i = 0; i < items.length; i++) {
+			LargeItem oneLargeItem = oneLargeItems.elementAt(items[i]);
+			values[i] = oneLargeItem.getValues()[0];
+			indexs[i] = oneLargeItem.getIndexs()[0];
+			codes[i] = oneLargeItem.getCodes()[0];
+		}
+
+		return addLargeItem(values, indexs, codes, weight);
+	}
+
+	/**
+	 * Returns the position of each code in the 1-largeItems, for each
+	 * attribute. The positions of an attribute without 1-largeItems are null,
+	 * and the position of a code which is not a 1-largeItem is -1 or beyond
+	 * the end of the array.
+	 * 
+	 * @param oneLargeItems
+	 *            the 1-largeItems
+	 * @param numAttributes
+	 *            the number of attributes
+	 * @return the position of each code in the 1-largeItems
+	 */
+	static int[][] itemPositions(Vector<LargeItem> oneLargeItems,
+			int numAttributes) {
+
+		int[][] positions = new int[numAttributes][];
+
+		for (int i = 0; i < oneLargeItems.size(); i++) {
+			int index = oneLargeItems.elementAt(i).getIndexs()[0];
+			int code = oneLargeItems.elementAt(i).getCodes()[0];
+			if (positions[index] == null || positions[index].length <= code) {
+				int[] position = new int[code + 1];
+				Arrays.fill(position, -1);
+				if (positions[index] != null)
+					System.arraycopy(positions[index], 0, position, 0,
+							positions[index].length);
+				positions[index] = position;
+			}
+			positions[index][code] = i;
+		}
+
+		return positions;
+	}
+
 	/**
 	 * Method that finds the set of 1-largeItems for the given set of attributes
 	 * pretreated.
@@ -361,10 +667,49 @@ public class LargeItemSet {
 			Attribute attribute = pretreatAttributes.elementAt(i);
 			for (int j = 0; j < attribute.numValues(); j++) {
 
-				if (attribute.getWeights().elementAt(j) > m_minWeight) {
+				if (attribute.getWeight(j) > m_minWeight) {
+					m_LargeItemSet.add(new LargeItem(new String[] { attribute
+							.getValues().elementAt(j) }, new int[] { i },
+							new int[] { j }, attribute.getWeight(j)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Method that finds the set of 1-largeItems for the given set of attributes
+	 * pretreated, with the weights counted in the encoded instances.
+	 * 
+	 * @param pretreatAttributes
+	 *            the vector of attributes pretreated
+	 * @param chooseAttributes
+	 *            the boolean array of choose attributes
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 */
+	private void findOneLargeItemSet(Vector<Attribute> pretreatAttributes,
+			boolean[] chooseAttributes, EncodedInstances instances,
+			int[][] codeMaps) {
+
+		for (int i = 0; i < pretreatAttributes.size(); i++) {
+			if (chooseAttributes != null && !chooseAttributes[i])
+				continue;
+
+			Attribute attribute = pretreatAttributes.elementAt(i);
+			int[] column = instances.getColumn(i);
+			int[] map = (codeMaps != null) ? codeMaps[i] : null;
+			int[] weights = new int[attribute.numValues()];
+			for (int n = 0; n < instances.numInstances(); n++)
+				weights[(map != null) ? map[column[n]] : column[n]]++;
+
+			for (int j = 0; j < weights.length; j++) {
+				if (weights[j] > m_minWeight) {
 					m_LargeItemSet.add(new LargeItem(new String[] { attribute
 							.getValues().elementAt(j) }, new int[] { i },
-							attribute.getWeights().elementAt(j).intValue()));
+							new int[] { j }, weights[j]));
 				}
 			}
 		}
@@ -385,6 +730,7 @@ public class LargeItemSet {
 			Vector<Object> instances, String[] pretreatOptions) {
 
 		Vector<LargeItem> itemSet = largeItemSet.getLargeItemSet();
+		HashSet<LargeItem> previous = new HashSet<LargeItem>(itemSet);
 		int temp;
 
 		for (int i = 0; i < largeItemSet.numLargeItem(); i++) {
@@ -392,42 +738,208 @@ public class LargeItemSet {
 
 				if ((temp = itemSet.elementAt(i)
 						.compareTo(itemSet.elementAt(j))) != 0) {
-					String[] proValues = itemSet.elementAt(i).getValues();
-					int[] proIndexs = itemSet.elementAt(i).getIndexs();
-
-					String[] values = new String[proValues.length + 1];
-					int[] indexs = new int[proIndexs.length + 1];
-
-					System.arraycopy(proValues, 0, values, 0, proValues.length);
-					System.arraycopy(proIndexs, 0, indexs, 0, proIndexs.length);
-
-					if (temp == 1) {
-						System.arraycopy(itemSet.elementAt(j).getValues(),
-								proValues.length - 1, values,
-								values.length - 1, 1);
-						indexs[indexs.length - 1] = itemSet.elementAt(j)
-								.getIndexs()[proIndexs.length - 1];
-					} else if (temp == -1) {
-						System.arraycopy(itemSet.elementAt(j).getValues(),
-								proValues.length - 1, values,
-								values.length - 2, 1);
-						indexs[indexs.length - 2] = itemSet.elementAt(j)
-								.getIndexs()[proIndexs.length - 1];
-						System.arraycopy(proValues, proValues.length - 1,
-								values, indexs.length - 1, 1);
-						indexs[indexs.length - 1] = proIndexs[proIndexs.length - 1];
+					LargeItem candidate = join(itemSet.elementAt(i),
+							itemSet.elementAt(j), temp);
+					if (hasInfrequentSubset(candidate, previous)) {
+						m_NumPruned++;
+						continue;
 					}
+					m_NumCandidates++;
 
-					int weight = weight(values, indexs, instances,
-							pretreatOptions);
-					if (weight > m_minWeight)
-						m_LargeItemSet
-						.add(new LargeItem(values, indexs, weight));
+					int weight = weight(candidate.getValues(),
+							candidate.getIndexs(), instances, pretreatOptions);
+					if (weight > m_minWeight) {
+						candidate.setWeight(weight);
+						m_LargeItemSet.add(candidate);
+					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Method that finds the set of k-largeItems for the given set of
+	 * (k-1)-largeItems and the encoded instances. All candidates are generated
+	 * first, then counted in one scan of the instances with a candidate trie.
+	 * 
+	 * @param largeItemSet
+	 *            the set of (k-1)-largeItems
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 * @param pool
+	 *            the pool counting partitions of the instances, or null
+	 */
+	private void findKLargeItemSet(LargeItemSet largeItemSet,
+			EncodedInstances instances, int[][] codeMaps, ForkJoinPool pool) {
+
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		int level = (largeItemSet.numLargeItem() > 0) ? largeItemSet
+				.getLargeItemSet().elementAt(0).numValuesInItem() + 1 : 0;
+
+		MiningMonitor monitor = MiningMonitor.current();
+
+		monitor.phase(MiningMetrics.PHASE_GENERATION, level, 0);
+		metrics.begin(MiningMetrics.PHASE_GENERATION, level);
+		Vector<LargeItem> candidates;
+		try {
+			candidates = generateCandidates(largeItemSet);
+			metrics.candidates(level, m_NumCandidates, m_NumPruned);
+		} finally {
+			metrics.end();
+		}
+		monitor.candidates(m_NumCandidates);
+		if (candidates.isEmpty())
+			return;
+
+		monitor.phase(MiningMetrics.PHASE_COUNTING, level, m_NumCandidates);
+		metrics.begin(MiningMetrics.PHASE_COUNTING, level);
+		try {
+			int[] weights = new CandidateTrie(candidates).count(instances,
+					codeMaps, pool);
+
+			for (int i = 0; i < candidates.size(); i++) {
+				if (weights[i] > m_minWeight) {
+					LargeItem candidate = candidates.elementAt(i);
+					candidate.setWeight(weights[i]);
+					m_LargeItemSet.add(candidate);
+				}
+			}
+			metrics.largeItems(level, m_LargeItemSet.size());
+		} finally {
+			metrics.end();
+		}
+	}
+
+	/**
+	 * Generates the k-itemset candidates from the set of (k-1)-largeItems. The
+	 * candidates with a (k-1)-subset which is not a large item are pruned.
+	 * 
+	 * @param largeItemSet
+	 *            the set of (k-1)-largeItems
+	 * @return the k-itemset candidates
+	 */
+	Vector<LargeItem> generateCandidates(LargeItemSet largeItemSet) {
+
+		Vector<LargeItem> itemSet = largeItemSet.getLargeItemSet();
+		HashSet<LargeItem> previous = new HashSet<LargeItem>(itemSet);
+		Vector<LargeItem> candidates = new Vector<LargeItem>();
+		int temp;
+
+		for (int i = 0; i < largeItemSet.numLargeItem(); i++) {
+			MiningMonitor.current().check();
+			for (int j = i + 1; j < largeItemSet.numLargeItem(); j++) {
+
+				if ((temp = itemSet.elementAt(i)
+						.compareTo(itemSet.elementAt(j))) != 0) {
+					LargeItem candidate = join(itemSet.elementAt(i),
+							itemSet.elementAt(j), temp);
+					if (hasInfrequentSubset(candidate, previous)) {
+						m_NumPruned++;
+						continue;
+					}
+					m_NumCandidates++;
+					candidates.add(candidate);
+				}
+			}
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Joins two (k-1)-largeItems which are equivalent except the last item to a
+	 * k-largeItem candidate, the items of which are ordered by the indexs.
+	 * 
+	 * @param first
+	 *            the first (k-1)-largeItem
+	 * @param second
+	 *            the second (k-1)-largeItem
+	 * @param order
+	 *            the result of first.compareTo(second)
+	 * @return the k-largeItem candidate without weight
+	 */
+	private LargeItem join(LargeItem first, LargeItem second, int order) {
+
+		String[] proValues = first.getValues();
+		int[] proIndexs = first.getIndexs();
+		int[] proCodes = first.getCodes();
+		int last = proIndexs.length - 1;
+
+		String[] values = new String[proValues.length + 1];
+		int[] indexs = new int[proIndexs.length + 1];
+		int[] codes = null;
+		if (proCodes != null && second.getCodes() != null)
+			codes = new int[proCodes.length + 1];
+
+		System.arraycopy(proValues, 0, values, 0, proValues.length);
+		System.arraycopy(proIndexs, 0, indexs, 0, proIndexs.length);
+		if (codes != null)
+			System.arraycopy(proCodes, 0, codes, 0, proCodes.length);
+
+		if (order == 1) {
+			values[values.length - 1] = second.getValues()[last];
+			indexs[indexs.length - 1] = second.getIndexs()[last];
+			if (codes != null)
+				codes[codes.length - 1] = second.getCodes()[last];
+		} else if (order == -1) {
+			values[values.length - 2] = second.getValues()[last];
+			indexs[indexs.length - 2] = second.getIndexs()[last];
+			values[values.length - 1] = proValues[last];
+			indexs[indexs.length - 1] = proIndexs[last];
+			if (codes != null) {
+				codes[codes.length - 2] = second.getCodes()[last];
+				codes[codes.length - 1] = proCodes[last];
+			}
+		}
+
+		return new LargeItem(values, indexs, codes, 0);
+	}
+
+	/**
+	 * Returns true if a (k-1)-subset of the k-itemset candidate is not a large
+	 * item. The two subsets without one of the last two items are the joined
+	 * (k-1)-largeItems, so only the others are looked up.
+	 * 
+	 * @param candidate
+	 *            the k-itemset candidate
+	 * @param previous
+	 *            the set of (k-1)-largeItems
+	 * @return true if a (k-1)-subset of the candidate is not a large item,
+	 *         false otherwise
+	 */
+	private boolean hasInfrequentSubset(LargeItem candidate,
+			HashSet<LargeItem> previous) {
+
+		String[] values = candidate.getValues();
+		int[] indexs = candidate.getIndexs();
+		int[] codes = candidate.getCodes();
+
+		for (int i = 0; i < values.length - 2; i++) {
+			String[] subValues = new String[values.length - 1];
+			int[] subIndexs = new int[indexs.length - 1];
+			int[] subCodes = (codes != null) ? new int[codes.length - 1] : null;
+
+			for (int j = 0, k = 0; j < values.length; j++) {
+				if (j == i)
+					continue;
+				subValues[k] = values[j];
+				subIndexs[k] = indexs[j];
+				if (subCodes != null)
+					subCodes[k] = codes[j];
+				k++;
+			}
+
+			if (!previous.contains(new LargeItem(subValues, subIndexs,
+					subCodes, 0)))
+				return true;
+		}
+
+		return false;
+	}
+
 	/**
 	 * Computes the weight for the given items in instances pretreated.
 	 * 
@@ -444,13 +956,18 @@ public class LargeItemSet {
 	private int weight(String[] values, int[] indexs, Vector<Object> instances,
 			String[] pretreatOptions) {
 
+		Pretreat[] pretreats = new Pretreat[indexs.length];
+		for (int i = 0; i < indexs.length; i++)
+			pretreats[i] = (pretreatOptions != null) ? Pretreat
+					.compile(pretreatOptions[indexs[i]]) : null;
+
 		int weight = 0;
 		for (Object obj : instances) {
 			String[] stringArray = (String[]) obj;
 			int count = 0;
 			for (int i = 0; i < values.length; i++) {
-				if (((pretreatOptions != null) ? Pretreat.pretreat(
-						stringArray[indexs[i]], pretreatOptions[indexs[i]])
+				if (((pretreats[i] != null) ? pretreats[i]
+						.pretreat(stringArray[indexs[i]])
 						: stringArray[indexs[i]]).equals(values[i])) {
 					count++;
 				} else {
@@ -495,7 +1012,7 @@ public class LargeItemSet {
 			do {
 				System.out.println(largeItemSet);
 				largeItemSet = new LargeItemSet(largeItemSet,
-						txtReader.getInstances(), null);
+						txtReader.getEncodedInstances(), null);
 			} while (largeItemSet.numLargeItem() > 0);
 		}
 	}
@@ -0,0 +1,188 @@
+/*
+ *    MiningEvent.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Emits a Java Flight Recorder event for each mining phase and level, named
+ * org.java.apriori.MiningPhase. The event type is created at run time with
+ * jdk.jfr.EventFactory, so the classes still run on a virtual machine without
+ * the Flight Recorder, where no event is emitted. An event is committed only
+ * while a recording enables it, and there are a few events for each search.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+final class MiningEvent {
+
+	/** The name of the event type. */
+	static final String NAME = "org.java.apriori.MiningPhase";
+
+	/** The fields of the events, in the order of their values. */
+	private static final String[][] FIELDS = {
+			{ "phase", "Phase" },
+			{ "level", "Level" },
+			{ "candidates", "Candidates" },
+			{ "prunedCandidates", "Pruned Candidates" },
+			{ "largeItems", "Large Items" },
+			{ "rowsScanned", "Rows Scanned" },
+			{ "minSupport", "Minimum Support" } };
+
+	/** The types of the fields. */
+	private static final Class<?>[] TYPES = { String.class, int.class,
+			long.class, long.class, long.class, long.class, double.class };
+
+	/** The factory of the events, null without the Flight Recorder. */
+	private static Object m_Factory;
+
+	/** The methods of the factory and the events. */
+	private static Method m_NewEvent, m_Begin, m_End, m_ShouldCommit,
+			m_Commit, m_Set;
+
+	static {
+		try {
+			Class<?> annotationElement = Class
+					.forName("jdk.jfr.AnnotationElement");
+			Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+			Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+			Class<?> event = Class.forName("jdk.jfr.Event");
+
+			List<Object> annotations = new ArrayList<Object>();
+			annotations.add(annotation(annotationElement, "jdk.jfr.Name", NAME));
+			annotations.add(annotation(annotationElement, "jdk.jfr.Label",
+					"Mining Phase"));
+			annotations.add(annotation(annotationElement, "jdk.jfr.Category",
+					new String[] { "Apriori" }));
+			annotations.add(annotation(annotationElement,
+					"jdk.jfr.Description",
+					"A phase of the mining, or a level of the candidates"));
+			annotations.add(annotation(annotationElement, "jdk.jfr.StackTrace",
+					false));
+
+			List<Object> fields = new ArrayList<Object>();
+			for (int i = 0; i < FIELDS.length; i++)
+				fields.add(valueDescriptor.getConstructor(Class.class,
+						String.class, List.class).newInstance(
+						TYPES[i],
+						FIELDS[i][0],
+						Collections.singletonList(annotation(annotationElement,
+								"jdk.jfr.Label", FIELDS[i][1]))));
+
+			m_Factory = eventFactory.getMethod("create", List.class, List.class)
+					.invoke(null, annotations, fields);
+			m_NewEvent = eventFactory.getMethod("newEvent");
+			m_Begin = event.getMethod("begin");
+			m_End = event.getMethod("end");
+			m_ShouldCommit = event.getMethod("shouldCommit");
+			m_Commit = event.getMethod("commit");
+			m_Set = event.getMethod("set", int.class, Object.class);
+		} catch (Exception e) {
+			// no Flight Recorder, the events are not emitted
+			m_Factory = null;
+		} catch (LinkageError e) {
+			m_Factory = null;
+		}
+	}
+
+	/**
+	 * Not instantiated.
+	 */
+	private MiningEvent() {
+
+	}
+
+	/**
+	 * Returns an annotation of the event type or of a field.
+	 * 
+	 * @param annotationElement
+	 *            the class jdk.jfr.AnnotationElement
+	 * @param type
+	 *            the name of the annotation's class
+	 * @param value
+	 *            the value of the annotation
+	 * @return the annotation
+	 * @throws Exception
+	 *             if the annotation can't be created
+	 */
+	private static Object annotation(Class<?> annotationElement, String type,
+			Object value) throws Exception {
+
+		return annotationElement.getConstructor(Class.class, Object.class)
+				.newInstance(
+						Class.forName(type).asSubclass(Annotation.class),
+						value);
+	}
+
+	/**
+	 * Starts an event.
+	 * 
+	 * @return the event, or null without the Flight Recorder
+	 */
+	static Object begin() {
+
+		if (m_Factory == null)
+			return null;
+
+		try {
+			Object event = m_NewEvent.invoke(m_Factory);
+			m_Begin.invoke(event);
+			return event;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Ends an event and commits it if a recording enables it.
+	 * 
+	 * @param event
+	 *            the event, null for none
+	 * @param phase
+	 *            the phase
+	 * @param level
+	 *            the size of the itemsets of the phase, 0 if none
+	 * @param candidates
+	 *            the number of candidates
+	 * @param prunedCandidates
+	 *            the number of candidates pruned
+	 * @param largeItems
+	 *            the number of large items
+	 * @param rowsScanned
+	 *            the number of rows scanned during the phase
+	 * @param minSupport
+	 *            the minimum support
+	 */
+	static void commit(Object event, String phase, int level, long candidates,
+			long prunedCandidates, long largeItems, long rowsScanned,
+			double minSupport) {
+
+		if (event == null)
+			return;
+
+		try {
+			m_End.invoke(event);
+			if (!((Boolean) m_ShouldCommit.invoke(event)))
+				return;
+
+			List<Object> values = Arrays.<Object> asList(phase, level,
+					candidates, prunedCandidates, largeItems, rowsScanned,
+					minSupport);
+			for (int i = 0; i < values.size(); i++)
+				m_Set.invoke(event, i, values.get(i));
+			m_Commit.invoke(event);
+		} catch (Exception e) {
+			// the event is lost, the mining goes on
+		}
+	}
+
+}
@@ -0,0 +1,37 @@
+/*
+ *    MiningListener.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+/**
+ * Receives the progress of a mining. The progress is reported when a phase
+ * or a level starts, when its candidates are generated, and after each block
+ * of instances scanned. It may be reported by the threads counting in
+ * parallel, so the listener must be thread safe and should return quickly.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public interface MiningListener {
+
+	/**
+	 * Reports the progress of the phase running.
+	 * 
+	 * @param phase
+	 *            the phase, one of the phases of MiningMetrics
+	 * @param level
+	 *            the size of the itemsets of the phase, 0 if the phase has no
+	 *            level
+	 * @param numCandidates
+	 *            the number of candidates of the level, or of large items
+	 *            whose rules are found
+	 * @param numRowsScanned
+	 *            the number of instances scanned since the phase started
+	 */
+	void progress(String phase, int level, long numCandidates,
+			long numRowsScanned);
+
+}
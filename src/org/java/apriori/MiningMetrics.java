@@ -0,0 +1,622 @@
+/*
+ *    MiningMetrics.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The metrics of the mining phases, one instance for the whole process,
+ * registered in the platform MBean server so a running job can be watched
+ * with any JMX client. Reading a file resets the metrics, each search of the
+ * large itemsets resets the metrics by level. The phases are timed one at a
+ * time, the metrics of concurrent minings are mixed. Each phase, and each
+ * level of the candidates, is also emitted as a Flight Recorder event.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class MiningMetrics implements MiningMetricsMBean {
+
+	/** The name of the MBean. */
+	public static final String OBJECT_NAME = "org.java.apriori:type=MiningMetrics";
+
+	/** No phase running. */
+	public static final String PHASE_IDLE = "idle";
+
+	/** Reading the instances. */
+	public static final String PHASE_PARSE = "parse";
+
+	/** Pretreating the attributes and the instances. */
+	public static final String PHASE_PRETREAT = "pretreat";
+
+	/** Searching the large itemsets. */
+	public static final String PHASE_MINING = "mining";
+
+	/** Generating the candidates of a level. */
+	public static final String PHASE_GENERATION = "candidate generation";
+
+	/** Counting the candidates of a level. */
+	public static final String PHASE_COUNTING = "counting";
+
+	/** Finding the association rules. */
+	public static final String PHASE_RULES = "rules";
+
+	/** The metrics of the process. */
+	private static final MiningMetrics METRICS = new MiningMetrics();
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(METRICS,
+					new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			// registered by another class loader, the metrics are still kept
+		}
+	}
+
+	/** The phase running. */
+	private String m_Phase = PHASE_IDLE;
+
+	/** The level running. */
+	private int m_Level;
+
+	/** Whether a search of the large itemsets is running. */
+	private boolean m_Mining;
+
+	/** The start of the phase running, in nanoseconds. */
+	private long m_PhaseStart;
+
+	/** The start of the search running, in nanoseconds. */
+	private long m_MiningStart;
+
+	/** The rows scanned before the phase running. */
+	private long m_PhaseRows;
+
+	/** The rows scanned before the search running. */
+	private long m_MiningRows;
+
+	/** The minimum support of the search running or found last. */
+	private double m_MinSupport;
+
+	/** The Flight Recorder event of the phase running. */
+	private Object m_Event;
+
+	/** The Flight Recorder event of the search running. */
+	private Object m_MiningEvent;
+
+	/** The times of the phases, in nanoseconds. */
+	private long m_ParseTime, m_PretreatTime, m_MiningTime, m_RuleTime;
+
+	/** The times of generating the candidates by level, in nanoseconds. */
+	private long[] m_GenerationTimes;
+
+	/** The times of counting the candidates by level, in nanoseconds. */
+	private long[] m_CountingTimes;
+
+	/** The numbers of candidates by level. */
+	private long[] m_Candidates;
+
+	/** The numbers of candidates pruned by level. */
+	private long[] m_Pruned;
+
+	/** The numbers of large items by level. */
+	private long[] m_LargeItems;
+
+	/** The number of rules found last. */
+	private long m_NumRules;
+
+	/** The number of rows scanned. */
+	private long m_RowsScanned;
+
+	/**
+	 * The bytes allocated by each thread running the phases, when it was first
+	 * seen and when it last ended a phase.
+	 */
+	private Map<Long, long[]> m_Allocated;
+
+	/**
+	 * Creates the metrics.
+	 */
+	private MiningMetrics() {
+
+		reset();
+	}
+
+	/**
+	 * Returns the metrics of the process.
+	 * 
+	 * @return the metrics of the process
+	 */
+	public static MiningMetrics getInstance() {
+
+		return METRICS;
+	}
+
+	/**
+	 * Sets all metrics to zero.
+	 */
+	public synchronized void reset() {
+
+		m_ParseTime = m_PretreatTime = m_MiningTime = m_RuleTime = 0;
+		m_NumRules = 0;
+		m_RowsScanned = 0;
+		m_Allocated = new HashMap<Long, long[]>();
+		clearLevels();
+	}
+
+	/**
+	 * Sets the metrics by level to zero.
+	 */
+	private void clearLevels() {
+
+		m_GenerationTimes = new long[0];
+		m_CountingTimes = new long[0];
+		m_Candidates = new long[0];
+		m_Pruned = new long[0];
+		m_LargeItems = new long[0];
+	}
+
+	/**
+	 * Starts a phase.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param level
+	 *            the size of the itemsets of the phase, 0 if none
+	 */
+	synchronized void begin(String phase, int level) {
+
+		m_Phase = phase;
+		m_Level = level;
+		track();
+		m_PhaseRows = m_RowsScanned;
+		m_Event = MiningEvent.begin();
+		m_PhaseStart = System.nanoTime();
+	}
+
+	/**
+	 * Ends the phase running, adds its time to the phase, or to its level, and
+	 * emits its event.
+	 */
+	synchronized void end() {
+
+		long time = System.nanoTime() - m_PhaseStart;
+		MiningEvent.commit(m_Event, m_Phase, m_Level, level(m_Candidates),
+				level(m_Pruned), level(m_LargeItems), m_RowsScanned
+						- m_PhaseRows, m_MinSupport);
+		m_Event = null;
+
+		if (m_Phase == PHASE_PARSE) {
+			m_ParseTime += time;
+		} else if (m_Phase == PHASE_PRETREAT) {
+			m_PretreatTime += time;
+		} else if (m_Phase == PHASE_RULES) {
+			m_RuleTime += time;
+		} else if (m_Phase == PHASE_GENERATION && m_Level > 0) {
+			m_GenerationTimes = grow(m_GenerationTimes, m_Level);
+			m_GenerationTimes[m_Level - 1] += time;
+		} else if (m_Phase == PHASE_COUNTING && m_Level > 0) {
+			m_CountingTimes = grow(m_CountingTimes, m_Level);
+			m_CountingTimes[m_Level - 1] += time;
+		}
+
+		track();
+		m_Phase = m_Mining ? PHASE_MINING : PHASE_IDLE;
+		m_Level = 0;
+	}
+
+	/**
+	 * Starts a search of the large itemsets and sets the metrics by level to
+	 * zero.
+	 * 
+	 * @param minSupport
+	 *            the minimum support of the search
+	 */
+	synchronized void beginMining(double minSupport) {
+
+		clearLevels();
+		m_Phase = PHASE_MINING;
+		m_Level = 0;
+		m_Mining = true;
+		m_MinSupport = minSupport;
+		track();
+		m_MiningRows = m_RowsScanned;
+		m_MiningEvent = MiningEvent.begin();
+		m_MiningStart = System.nanoTime();
+	}
+
+	/**
+	 * Ends the search of the large itemsets.
+	 * 
+	 * @param ls
+	 *            the set of all sets of large items found
+	 */
+	synchronized void endMining(Vector<LargeItemSet> ls) {
+
+		m_MiningTime += System.nanoTime() - m_MiningStart;
+		m_LargeItems = new long[ls.size()];
+		long numLargeItems = 0;
+		for (int k = 0; k < ls.size(); k++)
+			numLargeItems += m_LargeItems[k] = ls.elementAt(k).numLargeItem();
+
+		long numCandidates = 0, numPruned = 0;
+		for (int k = 0; k < m_Candidates.length; k++) {
+			numCandidates += m_Candidates[k];
+			numPruned += m_Pruned[k];
+		}
+		MiningEvent.commit(m_MiningEvent, PHASE_MINING, 0, numCandidates,
+				numPruned, numLargeItems, m_RowsScanned - m_MiningRows,
+				m_MinSupport);
+		m_MiningEvent = null;
+
+		track();
+		m_Mining = false;
+		m_Phase = PHASE_IDLE;
+	}
+
+	/**
+	 * Adds the numbers of candidates of a level, once generated.
+	 * 
+	 * @param level
+	 *            the size of the itemsets
+	 * @param numCandidates
+	 *            the number of candidates
+	 * @param numPruned
+	 *            the number of candidates pruned
+	 */
+	synchronized void candidates(int level, long numCandidates, long numPruned) {
+
+		if (level <= 0)
+			return;
+
+		m_Candidates = grow(m_Candidates, level);
+		m_Pruned = grow(m_Pruned, level);
+		m_Candidates[level - 1] += numCandidates;
+		m_Pruned[level - 1] += numPruned;
+	}
+
+	/**
+	 * Adds the number of large items of a level, once counted.
+	 * 
+	 * @param level
+	 *            the size of the itemsets
+	 * @param numLargeItems
+	 *            the number of large items
+	 */
+	synchronized void largeItems(int level, long numLargeItems) {
+
+		if (level <= 0)
+			return;
+
+		m_LargeItems = grow(m_LargeItems, level);
+		m_LargeItems[level - 1] += numLargeItems;
+	}
+
+	/**
+	 * Sets the number of rules found.
+	 * 
+	 * @param numRules
+	 *            the number of rules
+	 */
+	synchronized void rules(long numRules) {
+
+		m_NumRules = numRules;
+	}
+
+	/**
+	 * Adds rows read or scanned.
+	 * 
+	 * @param numRows
+	 *            the number of rows
+	 */
+	synchronized void scanned(long numRows) {
+
+		m_RowsScanned += numRows;
+	}
+
+	/**
+	 * Returns an array holding at least a number of elements.
+	 * 
+	 * @param array
+	 *            the array
+	 * @param length
+	 *            the number of elements
+	 * @return the array, or a longer copy
+	 */
+	private static long[] grow(long[] array, int length) {
+
+		return (array.length >= length) ? array : Arrays.copyOf(array, length);
+	}
+
+	/**
+	 * Returns the metric of the level running.
+	 * 
+	 * @param levels
+	 *            the metric by level
+	 * @return the metric of the level running, 0 if none
+	 */
+	private long level(long[] levels) {
+
+		return (m_Level > 0 && m_Level <= levels.length) ? levels[m_Level - 1]
+				: 0;
+	}
+
+	/**
+	 * Records the bytes allocated by the calling thread.
+	 */
+	private void track() {
+
+		long id = Thread.currentThread().getId();
+		long allocated = allocatedBytes(id);
+		if (allocated < 0)
+			return;
+
+		long[] bytes = m_Allocated.get(id);
+		if (bytes == null)
+			m_Allocated.put(id, new long[] { allocated, allocated });
+		else
+			bytes[1] = allocated;
+	}
+
+	/**
+	 * Returns the bytes allocated by a thread.
+	 * 
+	 * @param id
+	 *            the thread id
+	 * @return the bytes allocated, -1 if the thread has ended or the virtual
+	 *         machine can't measure them
+	 */
+	private static long allocatedBytes(long id) {
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean))
+			return -1;
+
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		if (!allocations.isThreadAllocatedMemorySupported()
+				|| !allocations.isThreadAllocatedMemoryEnabled())
+			return -1;
+
+		return allocations.getThreadAllocatedBytes(id);
+	}
+
+	/**
+	 * Returns a time in milliseconds.
+	 * 
+	 * @param nanos
+	 *            the time in nanoseconds
+	 * @return the time in milliseconds
+	 */
+	private static double millis(long nanos) {
+
+		return nanos / 1e6;
+	}
+
+	/**
+	 * Returns times in milliseconds.
+	 * 
+	 * @param nanos
+	 *            the times in nanoseconds
+	 * @return the times in milliseconds
+	 */
+	private static double[] millis(long[] nanos) {
+
+		double[] millis = new double[nanos.length];
+		for (int k = 0; k < nanos.length; k++)
+			millis[k] = millis(nanos[k]);
+
+		return millis;
+	}
+
+	/**
+	 * Returns the phase running, idle if none.
+	 * 
+	 * @return the phase running
+	 */
+	public synchronized String getPhase() {
+
+		return (m_Level > 0) ? "level " + m_Level + " " + m_Phase : m_Phase;
+	}
+
+	/**
+	 * Returns the size of the itemsets of the phase running, 0 if the phase
+	 * has no level.
+	 * 
+	 * @return the level running
+	 */
+	public synchronized int getLevel() {
+
+		return m_Level;
+	}
+
+	/**
+	 * Returns the wall time of reading the instances, in milliseconds.
+	 * 
+	 * @return the time of the parse phase
+	 */
+	public synchronized double getParseTime() {
+
+		return millis(m_ParseTime);
+	}
+
+	/**
+	 * Returns the wall time of pretreating the attributes and the instances,
+	 * in milliseconds.
+	 * 
+	 * @return the time of the pretreat phase
+	 */
+	public synchronized double getPretreatTime() {
+
+		return millis(m_PretreatTime);
+	}
+
+	/**
+	 * Returns the wall time of the last search of the large itemsets, with
+	 * any engine, in milliseconds.
+	 * 
+	 * @return the time of the mining
+	 */
+	public synchronized double getMiningTime() {
+
+		return millis(m_Mining ? m_MiningTime + System.nanoTime()
+				- m_MiningStart : m_MiningTime);
+	}
+
+	/**
+	 * Returns the wall time of generating the candidates of each level, in
+	 * milliseconds.
+	 * 
+	 * @return the time of the candidate generation by level
+	 */
+	public synchronized double[] getGenerationTimes() {
+
+		return millis(m_GenerationTimes);
+	}
+
+	/**
+	 * Returns the wall time of counting the candidates of each level, in
+	 * milliseconds.
+	 * 
+	 * @return the time of the counting by level
+	 */
+	public synchronized double[] getCountingTimes() {
+
+		return millis(m_CountingTimes);
+	}
+
+	/**
+	 * Returns the number of candidates generated at each level.
+	 * 
+	 * @return the number of candidates by level
+	 */
+	public synchronized long[] getCandidates() {
+
+		return m_Candidates.clone();
+	}
+
+	/**
+	 * Returns the number of candidates pruned at each level.
+	 * 
+	 * @return the number of candidates pruned by level
+	 */
+	public synchronized long[] getPrunedCandidates() {
+
+		return m_Pruned.clone();
+	}
+
+	/**
+	 * Returns the number of large items found at each level.
+	 * 
+	 * @return the number of large items by level
+	 */
+	public synchronized long[] getLargeItems() {
+
+		return m_LargeItems.clone();
+	}
+
+	/**
+	 * Returns the wall time of finding the association rules, in milliseconds.
+	 * 
+	 * @return the time of the rule phase
+	 */
+	public synchronized double getRuleTime() {
+
+		return millis(m_RuleTime);
+	}
+
+	/**
+	 * Returns the number of association rules found last.
+	 * 
+	 * @return the number of rules
+	 */
+	public synchronized long getRules() {
+
+		return m_NumRules;
+	}
+
+	/**
+	 * Returns the number of instances read and scanned by all passes.
+	 * 
+	 * @return the number of rows scanned
+	 */
+	public synchronized long getRowsScanned() {
+
+		return m_RowsScanned;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the threads running the
+	 * phases, -1 if the virtual machine can't measure it.
+	 * 
+	 * @return the number of bytes allocated
+	 */
+	public synchronized long getBytesAllocated() {
+
+		if (allocatedBytes(Thread.currentThread().getId()) < 0)
+			return -1;
+
+		long total = 0;
+		for (Map.Entry<Long, long[]> entry : m_Allocated.entrySet()) {
+			long allocated = allocatedBytes(entry.getKey());
+			long[] bytes = entry.getValue();
+			total += ((allocated >= 0) ? allocated : bytes[1]) - bytes[0];
+		}
+
+		return total;
+	}
+
+	/**
+	 * Returns the number of candidates generated for the k-itemsets.
+	 * 
+	 * @param level
+	 *            the size k of the itemsets
+	 * @return the number of candidates, 0 if the level has not been reached
+	 */
+	public synchronized long numCandidates(int level) {
+
+		return (level > 0 && level <= m_Candidates.length) ? m_Candidates[level - 1]
+				: 0;
+	}
+
+	/**
+	 * Returns the metrics as a string.
+	 * 
+	 * @return the metrics as a string
+	 */
+	public synchronized String toString() {
+
+		StringBuilder text = new StringBuilder();
+
+		text.append("parse: " + getParseTime() + " ms, pretreat: "
+				+ getPretreatTime() + " ms, mining: " + getMiningTime()
+				+ " ms, rules: " + getRuleTime() + " ms\n");
+		for (int k = 0; k < Math.max(m_Candidates.length, m_LargeItems.length); k++) {
+			text.append("level " + (k + 1) + ": ");
+			if (k < m_Candidates.length)
+				text.append(m_Candidates[k] + " candidates, " + m_Pruned[k]
+						+ " pruned, ");
+			if (k < m_GenerationTimes.length)
+				text.append(millis(m_GenerationTimes[k]) + " ms generating, ");
+			if (k < m_CountingTimes.length)
+				text.append(millis(m_CountingTimes[k]) + " ms counting, ");
+			text.append(((k < m_LargeItems.length) ? m_LargeItems[k] : 0)
+					+ " large items\n");
+		}
+		text.append(m_NumRules + " rules, " + m_RowsScanned
+				+ " rows scanned, " + getBytesAllocated() + " bytes allocated");
+
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ *    MiningMetricsMBean.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+/**
+ * The management interface of the mining metrics, registered in the platform
+ * MBean server as org.java.apriori:type=MiningMetrics. The metrics are updated
+ * while the mining runs. The arrays by level hold in their k-th element the
+ * metrics of the (k+1)-itemsets.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public interface MiningMetricsMBean {
+
+	/**
+	 * Returns the phase running, idle if none.
+	 * 
+	 * @return the phase running
+	 */
+	String getPhase();
+
+	/**
+	 * Returns the size of the itemsets of the phase running, 0 if the phase
+	 * has no level.
+	 * 
+	 * @return the level running
+	 */
+	int getLevel();
+
+	/**
+	 * Returns the wall time of reading the instances, in milliseconds.
+	 * 
+	 * @return the time of the parse phase
+	 */
+	double getParseTime();
+
+	/**
+	 * Returns the wall time of pretreating the attributes and the instances,
+	 * in milliseconds.
+	 * 
+	 * @return the time of the pretreat phase
+	 */
+	double getPretreatTime();
+
+	/**
+	 * Returns the wall time of the last search of the large itemsets, with
+	 * any engine, in milliseconds.
+	 * 
+	 * @return the time of the mining
+	 */
+	double getMiningTime();
+
+	/**
+	 * Returns the wall time of generating the candidates of each level, in
+	 * milliseconds.
+	 * 
+	 * @return the time of the candidate generation by level
+	 */
+	double[] getGenerationTimes();
+
+	/**
+	 * Returns the wall time of counting the candidates of each level, in
+	 * milliseconds.
+	 * 
+	 * @return the time of the counting by level
+	 */
+	double[] getCountingTimes();
+
+	/**
+	 * Returns the number of candidates generated at each level.
+	 * 
+	 * @return the number of candidates by level
+	 */
+	long[] getCandidates();
+
+	/**
+	 * Returns the number of candidates pruned at each level.
+	 * 
+	 * @return the number of candidates pruned by level
+	 */
+	long[] getPrunedCandidates();
+
+	/**
+	 * Returns the number of large items found at each level.
+	 * 
+	 * @return the number of large items by level
+	 */
+	long[] getLargeItems();
+
+	/**
+	 * Returns the wall time of finding the association rules, in milliseconds.
+	 * 
+	 * @return the time of the rule phase
+	 */
+	double getRuleTime();
+
+	/**
+	 * Returns the number of association rules found last.
+	 * 
+	 * @return the number of rules
+	 */
+	long getRules();
+
+	/**
+	 * Returns the number of instances read and scanned by all passes.
+	 * 
+	 * @return the number of rows scanned
+	 */
+	long getRowsScanned();
+
+	/**
+	 * Returns the number of bytes allocated by the threads running the
+	 * phases, -1 if the virtual machine can't measure it.
+	 * 
+	 * @return the number of bytes allocated
+	 */
+	long getBytesAllocated();
+
+	/**
+	 * Returns the number of candidates generated for the k-itemsets.
+	 * 
+	 * @param level
+	 *            the size k of the itemsets
+	 * @return the number of candidates, 0 if the level has not been reached
+	 */
+	long numCandidates(int level);
+
+	/**
+	 * Sets all metrics to zero.
+	 */
+	void reset();
+
+}
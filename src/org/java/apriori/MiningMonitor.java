@@ -0,0 +1,192 @@
+/*
+ *    MiningMonitor.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The listener and the cancellation token of the mining running in a thread.
+ * Apriori enters a monitor around each mining, and the scans and searches
+ * report their progress to the monitor of their thread. The counting tasks
+ * of a pool are given the monitor of the thread which forks them.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+final class MiningMonitor {
+
+	/** The number of instances scanned between two reports. */
+	static final int BLOCK_INSTANCES = 4096;
+
+	/** The monitor of a thread without listener nor token. */
+	private static final MiningMonitor NONE = new MiningMonitor(null, null,
+			null);
+
+	/** The monitor of each thread. */
+	private static final ThreadLocal<MiningMonitor> CURRENT = new ThreadLocal<MiningMonitor>();
+
+	/** The listener, null for none. */
+	private MiningListener m_Listener;
+
+	/** The cancellation token, null for none. */
+	private CancellationToken m_Token;
+
+	/** The monitor the thread had before entering this one. */
+	private MiningMonitor m_Previous;
+
+	/** The phase running. */
+	private volatile String m_Phase = MiningMetrics.PHASE_IDLE;
+
+	/** The level running. */
+	private volatile int m_Level;
+
+	/** The number of candidates of the level running. */
+	private volatile long m_NumCandidates;
+
+	/** The number of instances scanned since the phase started. */
+	private AtomicLong m_NumRows = new AtomicLong();
+
+	/**
+	 * Creates a monitor.
+	 * 
+	 * @param listener
+	 *            the listener, null for none
+	 * @param token
+	 *            the cancellation token, null for none
+	 * @param previous
+	 *            the monitor the thread had before
+	 */
+	private MiningMonitor(MiningListener listener, CancellationToken token,
+			MiningMonitor previous) {
+
+		m_Listener = listener;
+		m_Token = token;
+		m_Previous = previous;
+	}
+
+	/**
+	 * Enters a monitor in the calling thread, until exit() is called.
+	 * 
+	 * @param listener
+	 *            the listener, null for none
+	 * @param token
+	 *            the cancellation token, null for none
+	 * @return the monitor entered
+	 */
+	static MiningMonitor enter(MiningListener listener, CancellationToken token) {
+
+		MiningMonitor monitor = new MiningMonitor(listener, token,
+				CURRENT.get());
+		CURRENT.set(monitor);
+
+		return monitor;
+	}
+
+	/**
+	 * Restores the monitor the calling thread had before entering this one.
+	 */
+	void exit() {
+
+		if (m_Previous != null)
+			CURRENT.set(m_Previous);
+		else
+			CURRENT.remove();
+	}
+
+	/**
+	 * Returns the monitor of the calling thread.
+	 * 
+	 * @return the monitor of the calling thread, without listener nor token if
+	 *         none has been entered
+	 */
+	static MiningMonitor current() {
+
+		MiningMonitor monitor = CURRENT.get();
+
+		return (monitor != null) ? monitor : NONE;
+	}
+
+	/**
+	 * Starts a phase and reports it.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param level
+	 *            the size of the itemsets of the phase, 0 if none
+	 * @param numCandidates
+	 *            the number of candidates of the phase, 0 if not known yet
+	 */
+	void phase(String phase, int level, long numCandidates) {
+
+		if (this == NONE)
+			return;
+
+		check();
+		m_Phase = phase;
+		m_Level = level;
+		m_NumCandidates = numCandidates;
+		m_NumRows.set(0);
+		report(0);
+	}
+
+	/**
+	 * Reports the number of candidates of the level running.
+	 * 
+	 * @param numCandidates
+	 *            the number of candidates
+	 */
+	void candidates(long numCandidates) {
+
+		if (this == NONE)
+			return;
+
+		m_NumCandidates = numCandidates;
+		report(m_NumRows.get());
+	}
+
+	/**
+	 * Adds instances scanned, reports them and checks the token.
+	 * 
+	 * @param numRows
+	 *            the number of instances
+	 * @throws java.util.concurrent.CancellationException
+	 *             if the token is cancelled
+	 */
+	void scanned(long numRows) {
+
+		if (this == NONE)
+			return;
+
+		check();
+		report(m_NumRows.addAndGet(numRows));
+	}
+
+	/**
+	 * Checks the token.
+	 * 
+	 * @throws java.util.concurrent.CancellationException
+	 *             if the token is cancelled
+	 */
+	void check() {
+
+		if (m_Token != null)
+			m_Token.check();
+	}
+
+	/**
+	 * Reports the progress to the listener.
+	 * 
+	 * @param numRows
+	 *            the number of instances scanned since the phase started
+	 */
+	private void report(long numRows) {
+
+		if (m_Listener != null)
+			m_Listener.progress(m_Phase, m_Level, m_NumCandidates, numRows);
+	}
+
+}
@@ -6,39 +6,521 @@
 
 package org.java.apriori;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 /**
- * Pretreats data.
+ * Pretreats data. A pretreat option is compiled once into a pipeline of
+ * stages separated by '|', each stage is chosen by its first character:
+ * <ul>
+ * <li>/N buckets integers by N, /D buckets decimals by D (e.g. /0.5)</li>
+ * <li>&lt;C1,C2,... puts numbers into the ranges cut at C1, C2, ... (e.g.
+ * &lt;20,40 gives the values &lt;20, 20-40 and &gt;=40)</li>
+ * <li>=A:X,B:Y,*:Z maps the value A to X, B to Y and any other value to Z (the
+ * default * is optional)</li>
+ * <li>s/REGEX/REPLACEMENT/ rewrites the value with a regular expression, the
+ * character after s is the delimiter</li>
+ * </ul>
+ * A value which is not a number is not changed by the numeric stages. A
+ * pipeline made only of integer buckets pretreats integers without creating
+ * intermediate strings.
  * 
  * @author myluo
  * @version $Revision: 1512 $
  */
 public class Pretreat {
 
+	/** The pipeline separator. */
+	private static final char SEPARATOR = '|';
+
+	/** The stages of the pipeline. */
+	private Stage[] m_Stages;
+
+	/** The integer buckets, if the pipeline is made only of them. */
+	private int[] m_IntBuckets;
+
 	/**
-	 * Pretreats a string with option.
+	 * A stage of a pretreatment pipeline.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static abstract class Stage {
+
+		/**
+		 * Pretreats a string.
+		 * 
+		 * @param str
+		 *            the string pretreated
+		 * @return the string after pretreatment
+		 */
+		abstract String apply(String str);
+
+	}
+
+	/**
+	 * Buckets integers: the value v becomes v / N * N.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class IntBucket extends Stage {
+
+		/** The bucket width. */
+		private int m_Width;
+
+		/**
+		 * Creates an integer bucket.
+		 * 
+		 * @param width
+		 *            the bucket width
+		 */
+		private IntBucket(int width) {
+
+			if (width == 0)
+				throw new IllegalArgumentException("Bucket width is 0");
+			m_Width = width;
+		}
+
+		String apply(String str) {
+
+			long value = parseInt(str);
+			if (value == Long.MIN_VALUE)
+				return str;
+
+			return Integer.toString((int) value / m_Width * m_Width);
+		}
+
+	}
+
+	/**
+	 * Buckets decimals: the value v becomes floor(v / D) * D.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class DecimalBucket extends Stage {
+
+		/** The bucket width. */
+		private BigDecimal m_Width;
+
+		/**
+		 * Creates a decimal bucket.
+		 * 
+		 * @param width
+		 *            the bucket width
+		 */
+		private DecimalBucket(BigDecimal width) {
+
+			if (width.signum() <= 0)
+				throw new IllegalArgumentException(
+						"Bucket width is not positive: " + width);
+			m_Width = width;
+		}
+
+		String apply(String str) {
+
+			BigDecimal value = parseDecimal(str);
+			if (value == null)
+				return str;
+
+			BigDecimal bucket = value.divide(m_Width, 0, RoundingMode.FLOOR);
+			return bucket.multiply(m_Width).toPlainString();
+		}
+
+	}
+
+	/**
+	 * Puts numbers into ranges cut at ascending points.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Ranges extends Stage {
+
+		/** The cut points, ascending. */
+		private BigDecimal[] m_Cuts;
+
+		/** The value of each range, one more than the cut points. */
+		private String[] m_Labels;
+
+		/**
+		 * Creates ranges.
+		 * 
+		 * @param cuts
+		 *            the cut points as strings, ascending
+		 * @throws IllegalArgumentException
+		 *             if there is no cut point, or they are not ascending
+		 */
+		private Ranges(String[] cuts) {
+
+			if (cuts.length == 0)
+				throw new IllegalArgumentException("No range cut points");
+
+			m_Cuts = new BigDecimal[cuts.length];
+			m_Labels = new String[cuts.length + 1];
+
+			for (int i = 0; i < cuts.length; i++) {
+				m_Cuts[i] = new BigDecimal(cuts[i].trim());
+				if (i > 0 && m_Cuts[i].compareTo(m_Cuts[i - 1]) <= 0)
+					throw new IllegalArgumentException(
+							"Range cut points are not ascending: "
+									+ cuts[i].trim());
+			}
+
+			m_Labels[0] = "<" + m_Cuts[0].toPlainString();
+			for (int i = 1; i < cuts.length; i++)
+				m_Labels[i] = m_Cuts[i - 1].toPlainString() + "-"
+						+ m_Cuts[i].toPlainString();
+			m_Labels[cuts.length] = ">="
+					+ m_Cuts[cuts.length - 1].toPlainString();
+		}
+
+		String apply(String str) {
+
+			BigDecimal value = parseDecimal(str);
+			if (value == null)
+				return str;
+
+			int low = 0, high = m_Cuts.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (value.compareTo(m_Cuts[middle]) >= 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+
+			return m_Labels[low];
+		}
+
+	}
+
+	/**
+	 * Maps values with a table.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class ValueMap extends Stage {
+
+		/** The table from values to new values. */
+		private HashMap<String, String> m_Table;
+
+		/** The new value of the values not in the table, or null. */
+		private String m_Default;
+
+		/**
+		 * Creates a value map.
+		 * 
+		 * @param entries
+		 *            the entries of the table as value:newValue, the value *
+		 *            for any other value
+		 */
+		private ValueMap(String[] entries) {
+
+			m_Table = new HashMap<String, String>();
+
+			for (String entry : entries) {
+				int colon = entry.indexOf(':');
+				if (colon < 0)
+					throw new IllegalArgumentException(
+							"Value map entry without ':': " + entry);
+
+				String value = entry.substring(0, colon).trim();
+				String newValue = entry.substring(colon + 1).trim();
+				if (value.equals("*"))
+					m_Default = newValue;
+				else
+					m_Table.put(value, newValue);
+			}
+		}
+
+		String apply(String str) {
+
+			String newValue = m_Table.get(str);
+			if (newValue != null)
+				return newValue;
+
+			return (m_Default != null) ? m_Default : str;
+		}
+
+	}
+
+	/**
+	 * Rewrites values with a regular expression.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Rewrite extends Stage {
+
+		/** The regular expression. */
+		private Pattern m_Pattern;
+
+		/** The replacement. */
+		private String m_Replacement;
+
+		/**
+		 * Creates a rewrite.
+		 * 
+		 * @param regex
+		 *            the regular expression
+		 * @param replacement
+		 *            the replacement
+		 */
+		private Rewrite(String regex, String replacement) {
+
+			m_Pattern = Pattern.compile(regex);
+			m_Replacement = replacement;
+		}
+
+		String apply(String str) {
+
+			Matcher matcher = m_Pattern.matcher(str);
+			return matcher.find() ? matcher.replaceAll(m_Replacement) : str;
+		}
+
+	}
+
+	/**
+	 * Creates a pretreatment from its stages.
+	 * 
+	 * @param stages
+	 *            the stages of the pipeline
+	 */
+	private Pretreat(Stage[] stages) {
+
+		m_Stages = stages;
+
+		int[] intBuckets = new int[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			if (!(stages[i] instanceof IntBucket))
+				return;
+			intBuckets[i] = ((IntBucket) stages[i]).m_Width;
+		}
+		m_IntBuckets = intBuckets;
+	}
+
+	/**
+	 * Compiles a pretreat option.
 	 * 
-	 * @param str
-	 *            the string pretreated
 	 * @param option
 	 *            the pretreat option
-	 * @return the string from str after pretreatment
+	 * @return the pretreatment, or null if the option does not change any
+	 *         value
+	 * @throws IllegalArgumentException
+	 *             if the option is malformed
 	 */
-	public static String pretreat(String str, String option) {
+	public static Pretreat compile(String option) {
 
 		if (option == null || option.length() <= 1)
-			return str;
+			return null;
+
+		Vector<Stage> stages = new Vector<Stage>();
+		int start = 0;
+
+		while (start < option.length()) {
+			int end;
+			Stage stage = null;
+
+			if (option.charAt(start) == 's' && start + 1 < option.length()) {
+				// s/REGEX/REPLACEMENT/, the delimiter may be escaped by '\'
+				char delimiter = option.charAt(start + 1);
+				StringBuilder[] parts = { new StringBuilder(),
+						new StringBuilder() };
+				int part = 0;
+				end = start + 2;
+				for (; end < option.length() && part < 2; end++) {
+					char c = option.charAt(end);
+					if (c == '\\' && end + 1 < option.length()
+							&& option.charAt(end + 1) == delimiter) {
+						parts[part].append(delimiter);
+						end++;
+					} else if (c == delimiter) {
+						part++;
+					} else {
+						parts[part].append(c);
+					}
+				}
+				if (part == 0)
+					throw new IllegalArgumentException(
+							"Rewrite without replacement: " + option);
+				stage = new Rewrite(parts[0].toString(), parts[1].toString());
+				if (end < option.length() && option.charAt(end) != SEPARATOR)
+					throw new IllegalArgumentException(
+							"Unexpected characters after rewrite: " + option);
+			} else {
+				end = option.indexOf(SEPARATOR, start);
+				if (end < 0)
+					end = option.length();
+				stage = compileStage(option.substring(start, end).trim());
+			}
+
+			if (stage != null)
+				stages.add(stage);
+			start = end + 1;
+		}
+
+		if (stages.isEmpty())
+			return null;
+
+		return new Pretreat(stages.toArray(new Stage[stages.size()]));
+	}
+
+	/**
+	 * Compiles a stage which is not a rewrite.
+	 * 
+	 * @param option
+	 *            the stage's option
+	 * @return the stage, or null if the stage does not change any value
+	 */
+	private static Stage compileStage(String option) {
+
+		if (option.length() <= 1)
+			return null;
 
-		String preStr = str;
+		String operand = option.substring(1);
 		switch (option.charAt(0)) {
-		// TODO You could add any options you need.
 		case '/':
-			preStr = ""
-					+ (Integer.parseInt(str)
-							/ Integer.parseInt(option.substring(1)) * Integer
-							.parseInt(option.substring(1)));
-			break;
+			if (operand.indexOf('.') < 0)
+				return new IntBucket(Integer.parseInt(operand.trim()));
+			return new DecimalBucket(new BigDecimal(operand.trim()));
+		case '<':
+			return new Ranges(operand.split(","));
+		case '=':
+			return new ValueMap(operand.split(","));
+		}
+
+		return null;
+	}
+
+	/**
+	 * Pretreats a string.
+	 * 
+	 * @param str
+	 *            the string pretreated
+	 * @return the string from str after pretreatment
+	 */
+	public String pretreat(String str) {
+
+		if (str == null)
+			return null;
+
+		if (m_IntBuckets != null) {
+			long value = parseInt(str);
+			if (value == Long.MIN_VALUE)
+				return str;
+			return Integer.toString(pretreat((int) value));
+		}
+
+		for (Stage stage : m_Stages)
+			str = stage.apply(str);
+
+		return str;
+	}
+
+	/**
+	 * Returns true if the pipeline pretreats integers without strings.
+	 * 
+	 * @return true if the pipeline is made only of integer buckets
+	 */
+	public boolean isIntegral() {
+
+		return m_IntBuckets != null;
+	}
+
+	/**
+	 * Pretreats an integer with a pipeline made only of integer buckets.
+	 * 
+	 * @param value
+	 *            the integer pretreated
+	 * @return the integer after pretreatment
+	 * @throws IllegalStateException
+	 *             if the pipeline is not integral
+	 */
+	public int pretreat(int value) {
+
+		if (m_IntBuckets == null)
+			throw new IllegalStateException("Pretreatment is not integral");
+
+		for (int width : m_IntBuckets)
+			value = value / width * width;
+
+		return value;
+	}
+
+	/**
+	 * Parses a decimal integer without creating strings.
+	 * 
+	 * @param str
+	 *            the string parsed
+	 * @return the integer, or Long.MIN_VALUE if the string is not an int
+	 */
+	private static long parseInt(String str) {
+
+		int length = str.length();
+		if (length == 0 || length > 11)
+			return Long.MIN_VALUE;
+
+		int i = 0;
+		boolean negative = false;
+		if (str.charAt(0) == '-' || str.charAt(0) == '+') {
+			negative = str.charAt(0) == '-';
+			if (++i == length)
+				return Long.MIN_VALUE;
+		}
+
+		long value = 0;
+		for (; i < length; i++) {
+			int digit = str.charAt(i) - '0';
+			if (digit < 0 || digit > 9)
+				return Long.MIN_VALUE;
+			value = value * 10 + digit;
 		}
+		if (negative)
+			value = -value;
+
+		if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+			return Long.MIN_VALUE;
+
+		return value;
+	}
+
+	/**
+	 * Parses a decimal number.
+	 * 
+	 * @param str
+	 *            the string parsed
+	 * @return the number, or null if the string is not a number
+	 */
+	private static BigDecimal parseDecimal(String str) {
+
+		try {
+			return new BigDecimal(str.trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Pretreats a string with option. The option is compiled on every call,
+	 * compile it once with compile(String) to pretreat many strings.
+	 * 
+	 * @param str
+	 *            the string pretreated
+	 * @param option
+	 *            the pretreat option
+	 * @return the string from str after pretreatment
+	 */
+	public static String pretreat(String str, String option) {
+
+		Pretreat pretreat = compile(option);
 
-		return preStr;
+		return (pretreat != null) ? pretreat.pretreat(str) : str;
 	}
 }
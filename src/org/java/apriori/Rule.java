@@ -0,0 +1,111 @@
+/*
+ *    Rule.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * An association rule. Rules are ordered by decreasing confidence, and rules
+ * of the same confidence by decreasing number, the last found first.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class Rule implements Comparable<Rule> {
+
+	/** The antecedent, with its weight. */
+	private LargeItem m_Antecedent;
+
+	/** The consequent, with the weight of the rule. */
+	private LargeItem m_Consequent;
+
+	/** The confidence. */
+	private double m_Confidence;
+
+	/** The number of the rule in the order it was found. */
+	private int m_Number;
+
+	/**
+	 * Creates a rule.
+	 * 
+	 * @param antecedent
+	 *            the antecedent, with its weight
+	 * @param consequent
+	 *            the consequent, with the weight of the rule
+	 * @param confidence
+	 *            the confidence
+	 * @param number
+	 *            the number of the rule in the order it was found
+	 */
+	public Rule(LargeItem antecedent, LargeItem consequent, double confidence,
+			int number) {
+
+		m_Antecedent = antecedent;
+		m_Consequent = consequent;
+		m_Confidence = confidence;
+		m_Number = number;
+	}
+
+	/**
+	 * Returns the antecedent.
+	 * 
+	 * @return the antecedent
+	 */
+	public LargeItem getAntecedent() {
+
+		return m_Antecedent;
+	}
+
+	/**
+	 * Returns the consequent.
+	 * 
+	 * @return the consequent
+	 */
+	public LargeItem getConsequent() {
+
+		return m_Consequent;
+	}
+
+	/**
+	 * Returns the confidence.
+	 * 
+	 * @return the confidence
+	 */
+	public double getConfidence() {
+
+		return m_Confidence;
+	}
+
+	/**
+	 * Returns the number of the rule in the order it was found.
+	 * 
+	 * @return the number of the rule
+	 */
+	public int getNumber() {
+
+		return m_Number;
+	}
+
+	/**
+	 * Compares two rules.
+	 * 
+	 * @param rule
+	 *            the rule to be compared
+	 * @return a negative value if this rule comes before the given rule, a
+	 *         positive value if it comes after, 0 if they are the same rule
+	 */
+	public int compareTo(Rule rule) {
+
+		int compare = Double.compare(rule.getConfidence(), m_Confidence);
+		if (compare != 0)
+			return compare;
+
+		return (m_Number > rule.getNumber()) ? -1
+				: (m_Number < rule.getNumber()) ? 1 : 0;
+	}
+
+}
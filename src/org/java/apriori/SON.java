@@ -0,0 +1,360 @@
+/*
+ *    SON.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+import org.java.apriori.TxtReader.Attribute;
+
+/**
+ * Finds all sets of large items by partitions of the instances (SON), for
+ * instances which do not fit in memory. The instances are read twice by
+ * partitions from the reader: the large items of each partition are found
+ * with the minimum support of the partition and their union is the set of
+ * candidates, then the candidates are counted in all partitions. A large item
+ * is large in at least one partition, so the large items are the ones found in
+ * memory, in the same order. Only one partition is held at once, its columns
+ * fit in the memory budget, the candidates are held in addition.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class SON {
+
+	/** The set of all sets of itemsets L. */
+	private Vector<LargeItemSet> m_Ls;
+
+	/** The number of partitions. */
+	private int m_NumPartitions;
+
+	/** The number of candidates counted in all partitions. */
+	private int m_NumCandidates;
+
+	/**
+	 * Finds all sets of large items from the instances read by partitions.
+	 * 
+	 * @param txtReader
+	 *            the reader of the instances, in the partitioned mode
+	 * @param chooseAttributes
+	 *            the boolean array of choose attributes
+	 * @param pretreats
+	 *            the compiled pretreatment of each attribute, null for none
+	 * @param minSupport
+	 *            the minimum support
+	 * @param engine
+	 *            the engine finding the large items of a partition
+	 * @param memoryBudget
+	 *            the number of bytes for the columns of a partition
+	 * @param pool
+	 *            the pool counting the candidates, or null
+	 */
+	public SON(TxtReader txtReader, boolean[] chooseAttributes,
+			Pretreat[] pretreats, double minSupport, int engine,
+			long memoryBudget, ForkJoinPool pool) {
+
+		m_Ls = new Vector<LargeItemSet>();
+
+		int numAttributes = txtReader.numAttributes();
+		int maxInstances = (int) Math.max(1, Math.min(Integer.MAX_VALUE,
+				memoryBudget / (4L * Math.max(numAttributes, 1))));
+
+		txtReader.rewind();
+		HashSet<LargeItem> candidateSet = findCandidates(txtReader,
+				chooseAttributes, pretreats, minSupport, engine, maxInstances,
+				pool);
+
+		int numSupport = (int) (minSupport * txtReader.numInstances());
+		int[][] codeMaps = new int[numAttributes][];
+		LargeItemSet oneLargeItemSet = new LargeItemSet(pretreatAttributes(
+				txtReader.getAttributes(), chooseAttributes, pretreats,
+				codeMaps), chooseAttributes, numSupport);
+		if (oneLargeItemSet.numLargeItem() == 0)
+			return;
+		m_Ls.add(oneLargeItemSet);
+
+		Vector<LargeItem> oneLargeItems = oneLargeItemSet.getLargeItemSet();
+		int[][] positions = LargeItemSet.itemPositions(oneLargeItems,
+				numAttributes);
+		Vector<int[]> candidates = new Vector<int[]>();
+		for (LargeItem candidate : candidateSet) {
+			int[] items = items(candidate, positions);
+			if (items != null)
+				candidates.add(items);
+		}
+		candidateSet = null;
+		m_NumCandidates = candidates.size();
+		if (candidates.isEmpty())
+			return;
+
+		int[] weights = countCandidates(txtReader, oneLargeItems, candidates,
+				codeMaps, maxInstances, pool);
+		addLargeItems(oneLargeItems, candidates, weights, numSupport);
+	}
+
+	/**
+	 * Returns the set of all sets of large items, the k-th set holds the
+	 * (k+1)-largeItems.
+	 * 
+	 * @return the set of all sets of large items
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return m_Ls;
+	}
+
+	/**
+	 * Returns the number of partitions of the instances.
+	 * 
+	 * @return the number of partitions
+	 */
+	public int numPartitions() {
+
+		return m_NumPartitions;
+	}
+
+	/**
+	 * Returns the number of candidates counted in all partitions.
+	 * 
+	 * @return the number of candidates
+	 */
+	public int numCandidates() {
+
+		return m_NumCandidates;
+	}
+
+	/**
+	 * Finds the k-largeItems (k > 1) of each partition with the minimum
+	 * support of the partition, in the first pass through the partitions.
+	 * 
+	 * @param txtReader
+	 *            the reader of the instances
+	 * @param chooseAttributes
+	 *            the boolean array of choose attributes
+	 * @param pretreats
+	 *            the compiled pretreatment of each attribute
+	 * @param minSupport
+	 *            the minimum support
+	 * @param engine
+	 *            the engine finding the large items of a partition
+	 * @param maxInstances
+	 *            the maximum number of instances in a partition
+	 * @param pool
+	 *            the pool counting the candidates
+	 * @return the union of the large items of the partitions
+	 */
+	private HashSet<LargeItem> findCandidates(TxtReader txtReader,
+			boolean[] chooseAttributes, Pretreat[] pretreats,
+			double minSupport, int engine, int maxInstances, ForkJoinPool pool) {
+
+		HashSet<LargeItem> candidateSet = new HashSet<LargeItem>();
+		EncodedInstances partition;
+
+		while ((partition = txtReader.nextPartition(maxInstances)) != null) {
+			MiningMonitor.current().check();
+			m_NumPartitions++;
+
+			// the values read so far, the codes of which don't change later
+			int[][] codeMaps = new int[txtReader.numAttributes()][];
+			Vector<Attribute> attributes = pretreatAttributes(
+					txtReader.getAttributes(), chooseAttributes, pretreats,
+					codeMaps);
+			LargeItemSet largeItemSet = new LargeItemSet(attributes,
+					chooseAttributes, partition, codeMaps,
+					(int) (minSupport * partition.numInstances()));
+			if (largeItemSet.numLargeItem() == 0)
+				continue;
+
+			Vector<LargeItemSet> ls;
+			if (engine == Apriori.ENGINE_ECLAT)
+				ls = new Eclat(largeItemSet, partition, codeMaps)
+						.getLargeItemSets();
+			else if (engine == Apriori.ENGINE_FPGROWTH)
+				ls = new FPGrowth(largeItemSet, partition, codeMaps)
+						.getLargeItemSets();
+			else {
+				ls = new Vector<LargeItemSet>();
+				do {
+					ls.add(largeItemSet);
+					largeItemSet = new LargeItemSet(largeItemSet, partition,
+							codeMaps, pool);
+				} while (largeItemSet.numLargeItem() > 0);
+			}
+
+			for (int k = 1; k < ls.size(); k++)
+				candidateSet.addAll(ls.elementAt(k).getLargeItemSet());
+		}
+
+		return candidateSet;
+	}
+
+	/**
+	 * Counts the weights of the candidates in the second pass through the
+	 * partitions.
+	 * 
+	 * @param txtReader
+	 *            the reader of the instances
+	 * @param oneLargeItems
+	 *            the 1-largeItems
+	 * @param candidates
+	 *            the positions in the 1-largeItems of the items of each
+	 *            candidate
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated
+	 * @param maxInstances
+	 *            the maximum number of instances in a partition
+	 * @param pool
+	 *            the pool counting the candidates
+	 * @return the weight of each candidate
+	 */
+	private int[] countCandidates(TxtReader txtReader,
+			Vector<LargeItem> oneLargeItems, Vector<int[]> candidates,
+			int[][] codeMaps, int maxInstances, ForkJoinPool pool) {
+
+		Vector<LargeItem> largeItems = new Vector<LargeItem>(candidates.size());
+		LargeItemSet largeItemSet = new LargeItemSet();
+		for (int[] items : candidates)
+			largeItems.add(largeItemSet.addLargeItem(oneLargeItems, items, 0));
+		CandidateTrie trie = new CandidateTrie(largeItems);
+
+		int[] weights = new int[candidates.size()];
+		EncodedInstances partition;
+
+		txtReader.rewind();
+		while ((partition = txtReader.nextPartition(maxInstances)) != null) {
+			MiningMonitor.current().check();
+			int[] counts = trie.count(partition, codeMaps, pool);
+			for (int i = 0; i < weights.length; i++)
+				weights[i] += counts[i];
+		}
+
+		return weights;
+	}
+
+	/**
+	 * Adds the candidates with a weight above the minimum weight to the sets
+	 * of large items of their sizes, ordered like the level-wise LargeItemSet.
+	 * 
+	 * @param oneLargeItems
+	 *            the 1-largeItems
+	 * @param candidates
+	 *            the positions in the 1-largeItems of the items of each
+	 *            candidate
+	 * @param weights
+	 *            the weight of each candidate
+	 * @param minWeight
+	 *            the minimum weight
+	 */
+	private void addLargeItems(Vector<LargeItem> oneLargeItems,
+			Vector<int[]> candidates, int[] weights, int minWeight) {
+
+		Vector<Vector<int[]>> found = new Vector<Vector<int[]>>();
+		for (int i = 0; i < candidates.size(); i++) {
+			if (weights[i] <= minWeight)
+				continue;
+
+			int[] items = candidates.elementAt(i);
+			while (found.size() < items.length)
+				found.add(new Vector<int[]>());
+
+			// the positions in the 1-largeItems, followed by the weight
+			int[] largeItem = new int[items.length + 1];
+			System.arraycopy(items, 0, largeItem, 0, items.length);
+			largeItem[items.length] = weights[i];
+			found.elementAt(items.length - 1).add(largeItem);
+		}
+
+		for (int k = 1; k < found.size() && !found.elementAt(k).isEmpty(); k++) {
+			final int size = k + 1;
+			Vector<int[]> largeItems = found.elementAt(k);
+			Collections.sort(largeItems, new Comparator<int[]>() {
+				public int compare(int[] a, int[] b) {
+					for (int i = 0; i < size; i++) {
+						if (a[i] != b[i])
+							return (a[i] < b[i]) ? -1 : 1;
+					}
+					return 0;
+				}
+			});
+
+			LargeItemSet largeItemSet = new LargeItemSet();
+			largeItemSet.setOption(minWeight);
+			for (int[] largeItem : largeItems) {
+				int[] items = new int[size];
+				System.arraycopy(largeItem, 0, items, 0, size);
+				largeItemSet.addLargeItem(oneLargeItems, items, largeItem[size]);
+			}
+			m_Ls.add(largeItemSet);
+		}
+	}
+
+	/**
+	 * Returns the positions in the 1-largeItems of the items of a candidate.
+	 * 
+	 * @param candidate
+	 *            the candidate
+	 * @param positions
+	 *            the position of each code in the 1-largeItems
+	 * @return the positions of the items, or null if an item is not a
+	 *         1-largeItem
+	 */
+	private static int[] items(LargeItem candidate, int[][] positions) {
+
+		int[] indexs = candidate.getIndexs();
+		int[] codes = candidate.getCodes();
+		int[] items = new int[indexs.length];
+
+		for (int i = 0; i < indexs.length; i++) {
+			int[] position = positions[indexs[i]];
+			if (position == null || codes[i] >= position.length
+					|| position[codes[i]] < 0)
+				return null;
+			items[i] = position[codes[i]];
+		}
+
+		return items;
+	}
+
+	/**
+	 * Returns the attributes with the choosed attributes pretreated, and the
+	 * maps from the codes of the attributes to the codes pretreated.
+	 * 
+	 * @param attributes
+	 *            the vector of attributes
+	 * @param chooseAttributes
+	 *            the boolean array of choose attributes
+	 * @param pretreats
+	 *            the compiled pretreatment of each attribute, or null
+	 * @param codeMaps
+	 *            the array receiving the map of each attribute pretreated
+	 * @return the vector of attributes pretreated
+	 */
+	private static Vector<Attribute> pretreatAttributes(
+			Vector<Attribute> attributes, boolean[] chooseAttributes,
+			Pretreat[] pretreats, int[][] codeMaps) {
+
+		Vector<Attribute> pretreatAttributes = new Vector<Attribute>();
+
+		for (int i = 0; i < attributes.size(); i++) {
+			Attribute attribute = attributes.elementAt(i);
+			if (pretreats != null && pretreats[i] != null
+					&& (chooseAttributes == null || chooseAttributes[i])) {
+				codeMaps[i] = new int[attribute.numValues()];
+				attribute = attribute.pretreat(pretreats[i], codeMaps[i]);
+			}
+			pretreatAttributes.add(attribute);
+		}
+
+		return pretreatAttributes;
+	}
+
+}
@@ -0,0 +1,597 @@
+/*
+ *    Snapshot.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Vector;
+import java.util.zip.CRC32;
+
+import org.java.apriori.TxtReader.Attribute;
+
+/**
+ * Reads and writes the snapshots of the data read from TXT files. A snapshot
+ * is a binary file holding the attributes' names, values and weights, so the
+ * 1-itemsets need no pass through the instances, and the instances encoded
+ * column by column with one, two or four bytes for each code, as few as the
+ * number of values of the attribute allows. A snapshot is written once and
+ * memory-mapped on later loads, without tokenizing or looking up any word.
+ * <p>
+ * A snapshot is read when it is given to TxtReader directly. The snapshot of
+ * the file data.txt is data.txt.snapshot in the same directory, read instead
+ * of the TXT file only by open(), and only while it is current: the TXT file
+ * has the length and the CRC-32 checksum of its content it had when the
+ * snapshot was written.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class Snapshot {
+
+	/** The extension added to the name of a TXT file for its snapshot. */
+	public static final String EXTENSION = ".snapshot";
+
+	/** The first bytes of a snapshot, "APRS". */
+	private static final int MAGIC = 0x41505253;
+
+	/** The version of the format. */
+	private static final int VERSION = 1;
+
+	/** The size of the fixed part of the header, up to the dictionaries. */
+	private static final int HEADER_SIZE = 4 + 4 + 4;
+
+	/** The checksum of a snapshot with no TXT file. */
+	private static final long NO_CHECKSUM = -1;
+
+	/** The size of the buffer writing the columns. */
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	/** The largest region of the file mapped at once. */
+	private static final int MAX_REGION_SIZE = 1 << 30;
+
+	/** The charset of the names and values. */
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Not instantiated.
+	 */
+	private Snapshot() {
+
+	}
+
+	/**
+	 * Returns the snapshot of a TXT file, which may not exist.
+	 * 
+	 * @param file
+	 *            the TXT file
+	 * @return the snapshot file
+	 */
+	public static File snapshotOf(File file) {
+
+		return new File(file.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Returns whether a file is a snapshot, whatever its name.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return true if the file starts with the bytes of a snapshot
+	 */
+	public static boolean isSnapshot(File file) {
+
+		if (!file.isFile() || file.length() < HEADER_SIZE)
+			return false;
+
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			ByteBuffer header = ByteBuffer.allocate(8);
+			while (header.hasRemaining() && in.getChannel().read(header) >= 0)
+				;
+			return header.getInt(0) == MAGIC && header.getInt(4) == VERSION;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Returns whether a TXT file has a snapshot written from its current
+	 * content. The content of the file is read to compute its checksum if the
+	 * snapshot has its length.
+	 * 
+	 * @param file
+	 *            the TXT file
+	 * @return true if the snapshot of the file exists and is current
+	 */
+	public static boolean isCurrent(File file) {
+
+		if (!file.isFile())
+			return false;
+
+		try {
+			return isCurrent(file, checksum(file));
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns whether a TXT file of the given checksum has a snapshot written
+	 * from its current content.
+	 * 
+	 * @param file
+	 *            the TXT file
+	 * @param checksum
+	 *            the checksum of the content of the file
+	 * @return true if the snapshot of the file exists and is current
+	 */
+	private static boolean isCurrent(File file, long checksum) {
+
+		File snapshot = snapshotOf(file);
+		if (!isSnapshot(snapshot))
+			return false;
+
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(snapshot);
+			FileChannel channel = in.getChannel();
+			ByteBuffer source = ByteBuffer.allocate(16);
+			while (source.hasRemaining()
+					&& channel.read(source, HEADER_SIZE + source.position()) >= 0)
+				;
+			return source.getLong(0) == file.length()
+					&& source.getLong(8) == checksum;
+		} catch (IOException e) {
+			return false;
+		} finally {
+			close(in);
+		}
+	}
+
+	/**
+	 * Returns the CRC-32 checksum of the content of a file.
+	 * 
+	 * @param file
+	 *            the file
+	 * @return the checksum
+	 * @throws IOException
+	 *             if the file can't be read
+	 */
+	private static long checksum(File file) throws IOException {
+
+		CRC32 crc = new CRC32();
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE * 16);
+			int length;
+			while ((length = channel.read(buffer)) >= 0) {
+				crc.update(buffer.array(), 0, length);
+				buffer.clear();
+			}
+		} finally {
+			in.close();
+		}
+
+		return crc.getValue();
+	}
+
+	/**
+	 * Reads a TXT file, or its current snapshot instead if it has one. The
+	 * snapshot is only trusted if the file has the length and the checksum it
+	 * had when the snapshot was written, so the file is read once to compute
+	 * its checksum, but not tokenized.
+	 * 
+	 * @param file
+	 *            the TXT file
+	 * @param mode
+	 *            the mode reading the TXT file if it has no current snapshot,
+	 *            MODE_STREAM, MODE_MAPPED or MODE_PARALLEL
+	 * @return the reader of the snapshot or of the TXT file
+	 */
+	public static TxtReader open(File file, int mode) {
+
+		return new TxtReader(file, isCurrent(file) ? snapshotOf(file) : null,
+				mode, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Writes the snapshot of the data read completely by a reader.
+	 * 
+	 * @param txtReader
+	 *            the reader
+	 * @param file
+	 *            the snapshot file
+	 * @throws IOException
+	 *             if the snapshot can't be written
+	 * @throws IllegalArgumentException
+	 *             if the reader reads the instances by partitions
+	 */
+	public static void write(TxtReader txtReader, File file) throws IOException {
+
+		File source = txtReader.getFile();
+		if (source == null || isSnapshot(source))
+			write(txtReader, file, -1, NO_CHECKSUM);
+		else
+			write(txtReader, file, source.length(), checksum(source));
+	}
+
+	/**
+	 * Writes the snapshot of the data read completely by a reader from a TXT
+	 * file of the given length and checksum.
+	 * 
+	 * @param txtReader
+	 *            the reader
+	 * @param file
+	 *            the snapshot file
+	 * @param length
+	 *            the length of the TXT file, -1 if none
+	 * @param checksum
+	 *            the checksum of the TXT file
+	 * @throws IOException
+	 *             if the snapshot can't be written
+	 * @throws IllegalArgumentException
+	 *             if the reader reads the instances by partitions
+	 */
+	private static void write(TxtReader txtReader, File file, long length,
+			long checksum) throws IOException {
+
+		EncodedInstances instances = txtReader.getEncodedInstances();
+		if (instances == null)
+			throw new IllegalArgumentException(
+					"The instances are read by partitions");
+
+		Vector<Attribute> attributes = txtReader.getAttributes();
+		int numInstances = instances.numInstances();
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		header.writeLong(length);
+		header.writeLong(checksum);
+		header.writeInt(attributes.size());
+		header.writeInt(numInstances);
+		int[] widths = new int[attributes.size()];
+		for (int i = 0; i < attributes.size(); i++) {
+			Attribute attribute = attributes.elementAt(i);
+			writeString(header, attribute.getName());
+			header.writeInt(attribute.getType());
+			header.writeInt(attribute.numValues());
+			for (int j = 0; j < attribute.numValues(); j++) {
+				writeString(header, attribute.getValues().elementAt(j));
+				header.writeInt(attribute.getWeight(j));
+			}
+			widths[i] = width(attribute.numValues());
+			header.writeByte(widths[i]);
+		}
+		header.flush();
+
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel channel = out.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putInt(bytes.size());
+			buffer.flip();
+			writeFully(channel, buffer);
+			writeFully(channel, ByteBuffer.wrap(bytes.toByteArray()));
+
+			buffer.clear();
+			for (int i = 0; i < widths.length; i++) {
+				int[] column = instances.getColumn(i);
+				for (int n = 0; n < numInstances; n++) {
+					if (buffer.remaining() < 4) {
+						buffer.flip();
+						writeFully(channel, buffer);
+						buffer.clear();
+					}
+					if (widths[i] == 1)
+						buffer.put((byte) column[n]);
+					else if (widths[i] == 2)
+						buffer.putShort((short) column[n]);
+					else
+						buffer.putInt(column[n]);
+				}
+			}
+			buffer.flip();
+			writeFully(channel, buffer);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the snapshot of the TXT file read completely by a reader next to
+	 * the file, unless the reader read a snapshot or the file already has a
+	 * current snapshot. The snapshot is written to a temporary file renamed
+	 * once complete, so a failure leaves no partial snapshot.
+	 * 
+	 * @param txtReader
+	 *            the reader
+	 * @return true if the snapshot has been written, false if it was not
+	 *         needed
+	 * @throws IOException
+	 *             if the snapshot can't be written
+	 */
+	public static boolean cache(TxtReader txtReader) throws IOException {
+
+		File source = txtReader.getFile();
+		if (source == null || txtReader.getEncodedInstances() == null
+				|| isSnapshot(source))
+			return false;
+
+		long length = source.length();
+		long checksum = checksum(source);
+		if (isCurrent(source, checksum))
+			return false;
+
+		File snapshot = snapshotOf(source);
+		File part = new File(snapshot.getPath() + ".part");
+		try {
+			write(txtReader, part, length, checksum);
+		} catch (IOException e) {
+			part.delete();
+			throw e;
+		}
+		snapshot.delete();
+		if (!part.renameTo(snapshot)) {
+			part.delete();
+			throw new IOException("Can't rename " + part + " to " + snapshot);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads a snapshot into a reader, replacing its attributes and instances.
+	 * The columns are copied from the mapped file into arrays, without
+	 * decoding any word.
+	 * 
+	 * @param txtReader
+	 *            the reader
+	 * @param file
+	 *            the snapshot file
+	 * @throws IOException
+	 *             if the file can't be read or is not a snapshot
+	 */
+	static void read(TxtReader txtReader, File file) throws IOException {
+
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE)
+				throw new IOException("Not a snapshot: " + file);
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, HEADER_SIZE);
+			int headerSize = buffer.getInt(8);
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+					|| headerSize < 0 || HEADER_SIZE + (long) headerSize > size)
+				throw new IOException("Not a snapshot: " + file);
+
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE,
+					headerSize);
+			buffer.position(16);
+			int numAttributes = buffer.getInt();
+			int numInstances = buffer.getInt();
+			Vector<Attribute> attributes = new Vector<Attribute>(numAttributes);
+			int[] widths = new int[numAttributes];
+			long position = HEADER_SIZE + (long) headerSize;
+			for (int i = 0; i < numAttributes; i++) {
+				Attribute attribute = txtReader.new Attribute(readString(buffer));
+				attribute.setType(buffer.getInt());
+				int numValues = buffer.getInt();
+				for (int j = 0; j < numValues; j++)
+					attribute.append(readString(buffer), buffer.getInt());
+				widths[i] = buffer.get();
+				if (widths[i] != 1 && widths[i] != 2 && widths[i] != 4)
+					throw new IOException("Corrupted snapshot: " + file);
+				attributes.add(attribute);
+				position += (long) widths[i] * numInstances;
+			}
+			if (position > size)
+				throw new IOException("Truncated snapshot: " + file);
+
+			int[][] columns = new int[numAttributes][];
+			position = HEADER_SIZE + (long) headerSize;
+			for (int i = 0; i < numAttributes; i++) {
+				MiningMonitor.current().check();
+				columns[i] = readColumn(channel, position, widths[i],
+						numInstances);
+				position += (long) widths[i] * numInstances;
+			}
+
+			txtReader.setData(attributes, new EncodedInstances(
+					attributes, columns, numInstances));
+		} catch (RuntimeException e) {
+			// an inconsistent header
+			throw new IOException("Corrupted snapshot: " + file, e);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a column of codes, mapping the file by regions.
+	 * 
+	 * @param channel
+	 *            the channel of the snapshot
+	 * @param position
+	 *            the position of the column in the file
+	 * @param width
+	 *            the number of bytes of each code
+	 * @param numInstances
+	 *            the number of codes
+	 * @return the column of codes
+	 * @throws IOException
+	 *             if the file can't be mapped
+	 */
+	private static int[] readColumn(FileChannel channel, long position,
+			int width, int numInstances) throws IOException {
+
+		int[] column = new int[numInstances];
+		int perRegion = MAX_REGION_SIZE / width;
+		byte[] bytes = (width == 1) ? new byte[BLOCK_SIZE] : null;
+		short[] shorts = (width == 2) ? new short[BLOCK_SIZE] : null;
+
+		for (int from = 0; from < numInstances; from += perRegion) {
+			int length = Math.min(perRegion, numInstances - from);
+			MappedByteBuffer region = channel.map(
+					FileChannel.MapMode.READ_ONLY, position + (long) from
+							* width, (long) length * width);
+			if (width == 4) {
+				region.asIntBuffer().get(column, from, length);
+				continue;
+			}
+			ShortBuffer values = (width == 2) ? region.asShortBuffer() : null;
+			for (int n = 0; n < length; n += BLOCK_SIZE) {
+				int block = Math.min(BLOCK_SIZE, length - n);
+				if (width == 1) {
+					region.get(bytes, 0, block);
+					for (int k = 0; k < block; k++)
+						column[from + n + k] = bytes[k] & 0xFF;
+				} else {
+					values.get(shorts, 0, block);
+					for (int k = 0; k < block; k++)
+						column[from + n + k] = shorts[k] & 0xFFFF;
+				}
+			}
+		}
+
+		return column;
+	}
+
+	/**
+	 * Returns the number of bytes of the codes of an attribute.
+	 * 
+	 * @param numValues
+	 *            the number of values of the attribute
+	 * @return 1, 2 or 4
+	 */
+	private static int width(int numValues) {
+
+		if (numValues <= 1 << 8)
+			return 1;
+		if (numValues <= 1 << 16)
+			return 2;
+
+		return 4;
+	}
+
+	/**
+	 * Writes a string as its length in bytes, -1 for null, and its bytes.
+	 * 
+	 * @param out
+	 *            the output
+	 * @param string
+	 *            the string, may be null
+	 * @throws IOException
+	 *             if the string can't be written
+	 */
+	private static void writeString(DataOutputStream out, String string)
+			throws IOException {
+
+		if (string == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = string.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by writeString().
+	 * 
+	 * @param buffer
+	 *            the buffer
+	 * @return the string, may be null
+	 */
+	private static String readString(ByteBuffer buffer) {
+
+		int length = buffer.getInt();
+		if (length < 0)
+			return null;
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer.
+	 * 
+	 * @param channel
+	 *            the channel
+	 * @param buffer
+	 *            the buffer
+	 * @throws IOException
+	 *             if the bytes can't be written
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Closes an input, ignoring any error.
+	 * 
+	 * @param in
+	 *            the input, may be null
+	 */
+	private static void close(FileInputStream in) {
+
+		if (in != null) {
+			try {
+				in.close();
+			} catch (IOException e) {
+				// nothing was written
+			}
+		}
+	}
+
+	/**
+	 * Main method.
+	 * 
+	 * @param args
+	 *            should contain the name of a TXT file and optionally the name
+	 *            of the snapshot, the name of the TXT file followed by
+	 *            .snapshot by default
+	 * @throws IOException
+	 *             if the snapshot can't be written
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.out.println("\nUsage: " + Snapshot.class.getName()
+					+ " <dataset> [<snapshot>]\n");
+			return;
+		}
+
+		File file = new File(args[0]);
+		write(new TxtReader(file, TxtReader.MODE_PARALLEL),
+				(args.length > 1) ? new File(args[1]) : snapshotOf(file));
+	}
+
+}
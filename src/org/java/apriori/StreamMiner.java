@@ -0,0 +1,808 @@
+/*
+ *    StreamMiner.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StreamTokenizer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Vector;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * Finds the large items and the association rules of a sliding window over a
+ * stream of instances. The window holds the last instances or the instances
+ * of the last milliseconds, and is split in panes: the window slides by
+ * dropping its oldest pane. The itemsets of at most a maximum size of each
+ * instance are counted in the pane with lossy counting, so that a pane holds
+ * a bounded number of counts, each of which is below the real weight by at
+ * most the maximum error times the number of instances of the pane. The large
+ * items of the window are the itemsets with a weight above the minimum support
+ * minus the maximum error, so no large item is missed.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class StreamMiner {
+
+	/** The window holding the last instances. */
+	public static final int WINDOW_INSTANCES = 0;
+
+	/** The window holding the instances of the last milliseconds. */
+	public static final int WINDOW_TIME = 1;
+
+	/** The attributes' names. */
+	private String[] m_AttributeNames;
+
+	/** The codes of each attribute's values. */
+	private Vector<HashMap<String, Integer>> m_Codes;
+
+	/** The values of each attribute, indexed by their codes. */
+	private Vector<Vector<String>> m_Values;
+
+	/** The codes of each attribute freed by evicted values, to be reused. */
+	private Vector<Vector<Integer>> m_FreeCodes;
+
+	/** The value at a free code, distinct from any value read. */
+	private static final String FREE = new String("");
+
+	/** The minimum support. */
+	private double m_minSupport;
+
+	/** The minimum confidence. */
+	private double m_minConfidence;
+
+	/** The maximum error of the supports. */
+	private double m_MaxError;
+
+	/** The type of the window. */
+	private int m_WindowType = WINDOW_INSTANCES;
+
+	/** The size of the window, in instances or milliseconds. */
+	private long m_WindowSize = 10000;
+
+	/** The number of panes of the window. */
+	private int m_NumPanes = 10;
+
+	/** The maximum size of the itemsets counted. */
+	private int m_MaxItemSetSize = 3;
+
+	/** The panes of the window, the oldest first. */
+	private Vector<Pane> m_Panes;
+
+	/**
+	 * An itemset, as the attribute index and the code of each item.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class ItemSet {
+
+		/** The items, the attribute index in the high int, the code in the low. */
+		private long[] m_Items;
+
+		/** The hash code. */
+		private int m_Hash;
+
+		/**
+		 * Creates an itemset.
+		 * 
+		 * @param items
+		 *            the items, ordered by attribute index
+		 */
+		private ItemSet(long[] items) {
+
+			m_Items = items;
+			m_Hash = Arrays.hashCode(items);
+		}
+
+		/**
+		 * Returns a hash code of the items.
+		 * 
+		 * @return a hash code of the items
+		 */
+		public int hashCode() {
+
+			return m_Hash;
+		}
+
+		/**
+		 * Returns true if the object is an itemset with the same items.
+		 * 
+		 * @param obj
+		 *            the object to be compared
+		 * @return true if the itemsets have the same items
+		 */
+		public boolean equals(Object obj) {
+
+			return obj instanceof ItemSet
+					&& Arrays.equals(m_Items, ((ItemSet) obj).m_Items);
+		}
+
+	}
+
+	/**
+	 * A lossy count of an itemset in a pane.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Count {
+
+		/** The weight counted since the itemset was added to the pane. */
+		private int m_Weight;
+
+		/** The maximum weight missed before the itemset was added. */
+		private int m_Delta;
+
+	}
+
+	/**
+	 * A pane of the window, counting the itemsets of its instances.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Pane {
+
+		/** The counts of the itemsets. */
+		private HashMap<ItemSet, Count> m_Counts = new HashMap<ItemSet, Count>();
+
+		/** The number of instances. */
+		private int m_NumInstances;
+
+		/** The time the pane starts at, for a window of time. */
+		private long m_Start;
+
+	}
+
+	/**
+	 * Creates a stream miner for instances of the attributes.
+	 * 
+	 * @param attributeNames
+	 *            the attributes' names
+	 */
+	public StreamMiner(String[] attributeNames) {
+
+		m_AttributeNames = attributeNames;
+		m_Codes = new Vector<HashMap<String, Integer>>();
+		m_Values = new Vector<Vector<String>>();
+		m_FreeCodes = new Vector<Vector<Integer>>();
+		for (int i = 0; i < attributeNames.length; i++) {
+			m_Codes.add(new HashMap<String, Integer>());
+			m_Values.add(new Vector<String>());
+			m_FreeCodes.add(new Vector<Integer>());
+		}
+		m_Panes = new Vector<Pane>();
+		setOptions(null);
+	}
+
+	/**
+	 * Sets the mining options. The options contain the minimum support, the
+	 * minimum confidence and optionally the maximum error of the supports,
+	 * which is a tenth of the minimum support by default.
+	 * 
+	 * @param options
+	 *            the mining options
+	 */
+	public void setOptions(double[] options) {
+
+		if (options != null && options.length >= 2) {
+			m_minSupport = options[0];
+			m_minConfidence = options[1];
+			m_MaxError = (options.length >= 3) ? options[2]
+					: m_minSupport / 10;
+		} else {
+			m_minSupport = 0.2;
+			m_minConfidence = 0.9;
+			m_MaxError = m_minSupport / 10;
+		}
+	}
+
+	/**
+	 * Sets the window and drops the instances counted.
+	 * 
+	 * @param windowType
+	 *            the type of the window, WINDOW_INSTANCES or WINDOW_TIME
+	 * @param windowSize
+	 *            the size of the window, in instances or milliseconds
+	 * @param numPanes
+	 *            the number of panes of the window
+	 */
+	public void setWindow(int windowType, long windowSize, int numPanes) {
+
+		m_WindowType = windowType;
+		m_WindowSize = Math.max(windowSize, 1);
+		m_NumPanes = (int) Math.max(1, Math.min(numPanes, m_WindowSize));
+		m_Panes.removeAllElements();
+		evictValues();
+	}
+
+	/**
+	 * Sets the maximum size of the itemsets counted.
+	 * 
+	 * @param maxItemSetSize
+	 *            the maximum size of the itemsets
+	 */
+	public void setMaxItemSetSize(int maxItemSetSize) {
+
+		m_MaxItemSetSize = Math.max(maxItemSetSize, 1);
+		m_Panes.removeAllElements();
+		evictValues();
+	}
+
+	/**
+	 * Adds an instance to the window at the current time.
+	 * 
+	 * @param instance
+	 *            the instance's values, one for each attribute
+	 */
+	public void add(String[] instance) {
+
+		add(instance, System.currentTimeMillis());
+	}
+
+	/**
+	 * Adds an instance to the window, dropping the panes which have left it.
+	 * The values no longer counted in any pane are evicted each time a pane
+	 * is dropped or pruned.
+	 * 
+	 * @param instance
+	 *            the instance's values, one for each attribute
+	 * @param time
+	 *            the time of the instance, in milliseconds
+	 */
+	public void add(String[] instance, long time) {
+
+		Pane pane = currentPane(time);
+
+		long[] items = new long[m_AttributeNames.length];
+		for (int i = 0; i < items.length; i++)
+			items[i] = ((long) i << 32) | code(i, instance[i]);
+
+		pane.m_NumInstances++;
+		int bucketWidth = (m_MaxError > 0) ? (int) Math.ceil(1 / m_MaxError)
+				: Integer.MAX_VALUE;
+		int bucket = (pane.m_NumInstances - 1) / bucketWidth + 1;
+		count(pane, items, 0, new long[Math.min(m_MaxItemSetSize,
+				items.length)], 0, bucket - 1);
+
+		// the itemsets which can't be large any more are dropped
+		if (pane.m_NumInstances % bucketWidth == 0) {
+			Iterator<Count> counts = pane.m_Counts.values().iterator();
+			while (counts.hasNext()) {
+				Count count = counts.next();
+				if (count.m_Weight + count.m_Delta <= bucket)
+					counts.remove();
+			}
+			evictValues();
+		}
+	}
+
+	/**
+	 * Drops the panes which have left a window of time.
+	 * 
+	 * @param time
+	 *            the current time, in milliseconds
+	 */
+	public void expire(long time) {
+
+		if (m_WindowType != WINDOW_TIME)
+			return;
+
+		long paneSize = paneSize();
+		int numPanes = m_Panes.size();
+		while (!m_Panes.isEmpty()
+				&& m_Panes.firstElement().m_Start + paneSize <= time
+						- m_WindowSize)
+			m_Panes.removeElementAt(0);
+		if (m_Panes.size() < numPanes)
+			evictValues();
+	}
+
+	/**
+	 * Returns the number of instances in the window at the current time.
+	 * 
+	 * @return the number of instances in the window
+	 */
+	public int numInstances() {
+
+		return numInstances(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the number of instances in the window at the given time.
+	 * 
+	 * @param time
+	 *            the current time, in milliseconds, for a window of time
+	 * @return the number of instances in the window
+	 */
+	public int numInstances(long time) {
+
+		expire(time);
+
+		return windowInstances();
+	}
+
+	/**
+	 * Returns the number of instances in the panes of the window.
+	 * 
+	 * @return the number of instances in the panes
+	 */
+	private int windowInstances() {
+
+		int numInstances = 0;
+		for (Pane pane : m_Panes)
+			numInstances += pane.m_NumInstances;
+
+		return numInstances;
+	}
+
+	/**
+	 * Returns the number of itemsets counted in the panes of the window.
+	 * 
+	 * @return the number of itemsets counted
+	 */
+	public int numCounts() {
+
+		int numCounts = 0;
+		for (Pane pane : m_Panes)
+			numCounts += pane.m_Counts.size();
+
+		return numCounts;
+	}
+
+	/**
+	 * Returns the pane the instance at the given time is added to, starting a
+	 * new pane and dropping the oldest ones if needed.
+	 * 
+	 * @param time
+	 *            the time of the instance
+	 * @return the pane of the instance
+	 */
+	private Pane currentPane(long time) {
+
+		long paneSize = paneSize();
+		Pane pane = m_Panes.isEmpty() ? null : m_Panes.lastElement();
+
+		if (m_WindowType == WINDOW_TIME) {
+			expire(time);
+			if (pane == null || time >= pane.m_Start + paneSize) {
+				pane = new Pane();
+				pane.m_Start = time - time % paneSize;
+				m_Panes.add(pane);
+			}
+		} else if (pane == null || pane.m_NumInstances >= paneSize) {
+			pane = new Pane();
+			m_Panes.add(pane);
+			if (m_Panes.size() > m_NumPanes) {
+				while (m_Panes.size() > m_NumPanes)
+					m_Panes.removeElementAt(0);
+				evictValues();
+			}
+		}
+
+		return pane;
+	}
+
+	/**
+	 * Returns the size of a pane, in instances or milliseconds.
+	 * 
+	 * @return the size of a pane
+	 */
+	private long paneSize() {
+
+		return (m_WindowSize + m_NumPanes - 1) / m_NumPanes;
+	}
+
+	/**
+	 * Returns the code of an attribute's value, adding the value if needed.
+	 * 
+	 * @param index
+	 *            the attribute index
+	 * @param value
+	 *            the value
+	 * @return the code of the value
+	 */
+	private int code(int index, String value) {
+
+		Integer code = m_Codes.elementAt(index).get(value);
+		if (code == null) {
+			Vector<Integer> freeCodes = m_FreeCodes.elementAt(index);
+			if (freeCodes.isEmpty()) {
+				code = m_Values.elementAt(index).size();
+				m_Values.elementAt(index).add(value);
+			} else {
+				code = freeCodes.remove(freeCodes.size() - 1);
+				m_Values.elementAt(index).set(code, value);
+			}
+			m_Codes.elementAt(index).put(value, code);
+		}
+
+		return code;
+	}
+
+	/**
+	 * Evicts the values counted in no itemset of the panes, so that the
+	 * dictionaries hold no more values than the window. Their codes are freed
+	 * for new values.
+	 */
+	private void evictValues() {
+
+		boolean[][] counted = new boolean[m_AttributeNames.length][];
+		for (int i = 0; i < counted.length; i++)
+			counted[i] = new boolean[m_Values.elementAt(i).size()];
+		for (Pane pane : m_Panes) {
+			for (ItemSet itemSet : pane.m_Counts.keySet()) {
+				for (long item : itemSet.m_Items)
+					counted[(int) (item >>> 32)][(int) item] = true;
+			}
+		}
+
+		for (int i = 0; i < counted.length; i++) {
+			Vector<String> values = m_Values.elementAt(i);
+			for (int code = 0; code < counted[i].length; code++) {
+				if (!counted[i][code] && values.elementAt(code) != FREE) {
+					m_Codes.elementAt(i).remove(values.elementAt(code));
+					values.set(code, FREE);
+					m_FreeCodes.elementAt(i).add(code);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts in the pane all itemsets of the instance extending a prefix.
+	 * 
+	 * @param pane
+	 *            the pane
+	 * @param items
+	 *            the items of the instance
+	 * @param from
+	 *            the first item which can extend the prefix
+	 * @param prefix
+	 *            the array holding the prefix
+	 * @param length
+	 *            the length of the prefix
+	 * @param delta
+	 *            the maximum weight missed by an itemset added now
+	 */
+	private void count(Pane pane, long[] items, int from, long[] prefix,
+			int length, int delta) {
+
+		for (int i = from; i < items.length; i++) {
+			prefix[length] = items[i];
+			ItemSet itemSet = new ItemSet(Arrays.copyOf(prefix, length + 1));
+
+			Count count = pane.m_Counts.get(itemSet);
+			if (count == null) {
+				count = new Count();
+				count.m_Delta = delta;
+				pane.m_Counts.put(itemSet, count);
+			}
+			count.m_Weight++;
+
+			if (length + 1 < prefix.length)
+				count(pane, items, i + 1, prefix, length + 1, delta);
+		}
+	}
+
+	/**
+	 * Returns the large items of the window at the current time.
+	 * 
+	 * @return the set of all sets of large items, the k-th set holds the
+	 *         (k+1)-largeItems
+	 */
+	public Vector<LargeItemSet> getLargeItemSets() {
+
+		return getLargeItemSets(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the large items of the window at the given time, dropping the
+	 * panes of a window of time which have left it, even if no instance has
+	 * been added since. The weight of a large item is its weight counted,
+	 * which is below the real weight by at most the maximum error times the
+	 * number of instances of the window.
+	 * 
+	 * @param time
+	 *            the current time, in milliseconds, for a window of time
+	 * @return the set of all sets of large items, the k-th set holds the
+	 *         (k+1)-largeItems
+	 */
+	public Vector<LargeItemSet> getLargeItemSets(long time) {
+
+		expire(time);
+
+		HashMap<ItemSet, int[]> weights = new HashMap<ItemSet, int[]>();
+		for (Pane pane : m_Panes) {
+			for (Map.Entry<ItemSet, Count> entry : pane.m_Counts.entrySet()) {
+				int[] weight = weights.get(entry.getKey());
+				if (weight == null)
+					weights.put(entry.getKey(),
+							new int[] { entry.getValue().m_Weight });
+				else
+					weight[0] += entry.getValue().m_Weight;
+			}
+		}
+
+		int minWeight = (int) ((m_minSupport - m_MaxError) * windowInstances());
+		Vector<Vector<ItemSet>> found = new Vector<Vector<ItemSet>>();
+		for (Map.Entry<ItemSet, int[]> entry : weights.entrySet()) {
+			if (entry.getValue()[0] <= minWeight)
+				continue;
+			int size = entry.getKey().m_Items.length;
+			while (found.size() < size)
+				found.add(new Vector<ItemSet>());
+			found.elementAt(size - 1).add(entry.getKey());
+		}
+
+		Vector<LargeItemSet> ls = new Vector<LargeItemSet>();
+		for (Vector<ItemSet> itemSets : found) {
+			Collections.sort(itemSets, new Comparator<ItemSet>() {
+				public int compare(ItemSet a, ItemSet b) {
+					for (int i = 0; i < a.m_Items.length; i++) {
+						if (a.m_Items[i] != b.m_Items[i])
+							return (a.m_Items[i] < b.m_Items[i]) ? -1 : 1;
+					}
+					return 0;
+				}
+			});
+
+			LargeItemSet largeItemSet = new LargeItemSet();
+			largeItemSet.setOption(minWeight);
+			for (ItemSet itemSet : itemSets) {
+				int size = itemSet.m_Items.length;
+				String[] values = new String[size];
+				int[] indexs = new int[size];
+				int[] codes = new int[size];
+				for (int i = 0; i < size; i++) {
+					indexs[i] = (int) (itemSet.m_Items[i] >>> 32);
+					codes[i] = (int) itemSet.m_Items[i];
+					values[i] = m_Values.elementAt(indexs[i]).elementAt(codes[i]);
+				}
+				largeItemSet.addLargeItem(values, indexs, codes,
+						weights.get(itemSet)[0]);
+			}
+			ls.add(largeItemSet);
+		}
+
+		return ls;
+	}
+
+	/**
+	 * Returns the association rules of the large items of the window at the
+	 * current time, sorted by confidence.
+	 * 
+	 * @return the rules sorted
+	 */
+	public Vector<Rule> getRules() {
+
+		return getRules(System.currentTimeMillis());
+	}
+
+	/**
+	 * Returns the association rules of the large items of the window at the
+	 * given time, sorted by confidence.
+	 * 
+	 * @param time
+	 *            the current time, in milliseconds, for a window of time
+	 * @return the rules sorted
+	 */
+	public Vector<Rule> getRules(long time) {
+
+		Vector<LargeItemSet> ls = getLargeItemSets(time);
+		HashMap<ItemSet, LargeItem> largeItems = new HashMap<ItemSet, LargeItem>();
+		for (LargeItemSet largeItemSet : ls) {
+			for (LargeItem largeItem : largeItemSet.getLargeItemSet())
+				largeItems.put(itemSet(largeItem), largeItem);
+		}
+
+		Vector<Rule> rules = new Vector<Rule>();
+		for (int k = 1; k < ls.size(); k++) {
+			for (LargeItem largeItem : ls.elementAt(k).getLargeItemSet()) {
+				int size = largeItem.getIndexs().length;
+
+				// each proper subset of the large item, as a bit mask counting
+				// up from the first item
+				BitSet mask = new BitSet(size);
+				while (true) {
+					int low = mask.nextClearBit(0);
+					mask.clear(0, low);
+					mask.set(low);
+					if (mask.cardinality() == size)
+						break;
+
+					long[] items = new long[mask.cardinality()];
+					for (int i = mask.nextSetBit(0), j = 0; i >= 0; i = mask
+							.nextSetBit(i + 1))
+						items[j++] = ((long) largeItem.getIndexs()[i] << 32)
+								| largeItem.getCodes()[i];
+
+					LargeItem antecedent = largeItems.get(new ItemSet(items));
+					if (antecedent == null)
+						continue;
+
+					double confidence = (double) largeItem.getWeight()
+							/ antecedent.getWeight();
+					if (confidence >= m_minConfidence)
+						rules.add(new Rule(antecedent, largeItem.minus(antecedent),
+								confidence, rules.size()));
+				}
+			}
+		}
+
+		Collections.sort(rules);
+
+		return rules;
+	}
+
+	/**
+	 * Returns the itemset of a large item.
+	 * 
+	 * @param largeItem
+	 *            the large item
+	 * @return the itemset of the large item
+	 */
+	private static ItemSet itemSet(LargeItem largeItem) {
+
+		long[] items = new long[largeItem.getIndexs().length];
+		for (int i = 0; i < items.length; i++)
+			items[i] = ((long) largeItem.getIndexs()[i] << 32)
+					| largeItem.getCodes()[i];
+
+		return new ItemSet(items);
+	}
+
+	/**
+	 * Returns a description of the rules of the window.
+	 * 
+	 * @return a description of the rules
+	 */
+	public String ruleSetToString() {
+
+		StringBuilder sb = new StringBuilder();
+		Vector<Rule> rules = getRules();
+
+		for (int n = 0; n < rules.size(); n++) {
+			Rule rule = rules.elementAt(n);
+			sb.append(n + 1 + ".");
+			sb.append(largeItemToString(rule.getAntecedent()));
+			sb.append(" ==>");
+			sb.append(largeItemToString(rule.getConsequent()));
+			sb.append("\tconf:(");
+			sb.append(String.format("%.2f", rule.getConfidence()));
+			sb.append(")\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns a description of the large item.
+	 * 
+	 * @param largeItem
+	 *            the large item
+	 * @return a description of the large item
+	 */
+	private String largeItemToString(LargeItem largeItem) {
+
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < largeItem.getValues().length; i++)
+			sb.append(" " + m_AttributeNames[largeItem.getIndexs()[i]] + "="
+					+ largeItem.getValues()[i]);
+		sb.append(" " + largeItem.getWeight());
+
+		return sb.toString();
+	}
+
+	/**
+	 * Parses the size of a window: a number of instances, or a time in
+	 * milliseconds, seconds, minutes or hours with the suffix ms, s, m or h.
+	 * 
+	 * @param window
+	 *            the size of the window
+	 * @return the type and the size of the window
+	 * @throws NumberFormatException
+	 *             if the size can't be parsed
+	 */
+	private static long[] parseWindow(String window) {
+
+		String[] suffixes = { "ms", "s", "m", "h" };
+		long[] units = { 1, 1000, 60 * 1000, 60 * 60 * 1000 };
+		for (int i = 0; i < suffixes.length; i++) {
+			if (window.endsWith(suffixes[i])) {
+				String size = window.substring(0, window.length()
+						- suffixes[i].length());
+				return new long[] { WINDOW_TIME,
+						(long) (Double.parseDouble(size) * units[i]) };
+			}
+		}
+
+		return new long[] { WINDOW_INSTANCES, Long.parseLong(window) };
+	}
+
+	/**
+	 * Main method. Reads instances in TXT format from the standard input and
+	 * prints the rules of the window each time a pane is full, or each time an
+	 * instance arrives after a pane of time has elapsed.
+	 * 
+	 * @param args
+	 *            should contain the window size, in instances or as a time
+	 *            with the suffix ms, s, m or h, and optionally the minimum
+	 *            support, the minimum confidence, the maximum size of the
+	 *            itemsets, the maximum error of the supports and the number
+	 *            of panes
+	 * @throws IOException
+	 *             if the standard input can't be read
+	 */
+	public static void main(String[] args) throws IOException {
+
+		if (args.length == 0) {
+			System.out.println("\nUsage: " + StreamMiner.class.getName()
+					+ " <window>[ms|s|m|h] [<support> <confidence> [<size>"
+					+ " [<error> [<panes>]]]] < <dataset>\n");
+			return;
+		}
+
+		StreamTokenizer tokenizer = TxtReader.newTokenizer(new BufferedReader(
+				new InputStreamReader(System.in)));
+		Vector<String> names = new Vector<String>();
+		while (tokenizer.nextToken() != StreamTokenizer.TT_EOL
+				&& tokenizer.ttype != StreamTokenizer.TT_EOF)
+			names.add(tokenizer.sval);
+
+		StreamMiner miner = new StreamMiner(names.toArray(new String[0]));
+		long[] window = parseWindow(args[0]);
+		miner.setWindow((int) window[0], window[1],
+				(args.length >= 6) ? Integer.parseInt(args[5]) : 10);
+		if (args.length >= 5)
+			miner.setOptions(new double[] { Double.parseDouble(args[1]),
+					Double.parseDouble(args[2]), Double.parseDouble(args[4]) });
+		else if (args.length >= 3)
+			miner.setOptions(new double[] { Double.parseDouble(args[1]),
+					Double.parseDouble(args[2]) });
+		if (args.length >= 4)
+			miner.setMaxItemSetSize(Integer.parseInt(args[3]));
+
+		long paneSize = miner.paneSize();
+		long numInstances = 0;
+		long nextTime = System.currentTimeMillis() + paneSize;
+		String[] instance = new String[names.size()];
+		int index = -1;
+		while (tokenizer.nextToken() != StreamTokenizer.TT_EOF) {
+			if (tokenizer.ttype != StreamTokenizer.TT_EOL
+					&& ++index < instance.length) {
+				instance[index] = (tokenizer.ttype == StreamTokenizer.TT_WORD) ? tokenizer.sval
+						: null;
+			} else {
+				if (index + 1 >= instance.length) {
+					long time = System.currentTimeMillis();
+					miner.add(instance, time);
+					if (window[0] == WINDOW_TIME) {
+						if (time >= nextTime) {
+							System.out.println(miner.ruleSetToString());
+							nextTime = time + paneSize;
+						}
+					} else if (++numInstances % paneSize == 0)
+						System.out.println(miner.ruleSetToString());
+				}
+				index = -1;
+			}
+		}
+		System.out.println(miner.ruleSetToString());
+	}
+
+}
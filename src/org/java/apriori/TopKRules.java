@@ -0,0 +1,437 @@
+/*
+ *    TopKRules.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.apriori;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Vector;
+
+import org.java.apriori.LargeItemSet.LargeItem;
+
+/**
+ * Finds the k association rules of highest weight with the minimum confidence,
+ * without a minimum support (TopKRules). The rules of one item each side are
+ * grown by adding an item to the antecedent or to the consequent, the rules of
+ * highest weight first, with the TID-bitsets of Eclat. The minimum weight
+ * starts at 0 and rises to the weight of the k-th rule once k rules are kept,
+ * and a rule at or below it is not grown any more, as growing a rule never
+ * raises its weight.
+ * 
+ * @author myluo
+ * @version $Revision: 1512 $
+ */
+public class TopKRules {
+
+	/** The 1-largeItems, all items of the instances. */
+	private Vector<LargeItem> m_OneLargeItems;
+
+	/** The bitsets of the 1-largeItems. */
+	private long[][] m_TidSets;
+
+	/** The number of rules to find. */
+	private int m_NumRules;
+
+	/** The minimum confidence. */
+	private double m_minConfidence;
+
+	/** The minimum weight, raised as the rules are found. */
+	private int m_minWeight;
+
+	/** The rules kept, the one of lowest weight at the head. */
+	private PriorityQueue<Candidate> m_Rules;
+
+	/** The rules to grow, the one of highest weight at the head. */
+	private PriorityQueue<Candidate> m_Candidates;
+
+	/** The number of rules found. */
+	private int m_NumFound;
+
+	/** The number of rules grown. */
+	private int m_NumExpanded;
+
+	/**
+	 * A rule being grown, with the bitsets of its antecedent and of its items.
+	 * 
+	 * @author myluo
+	 * @version $Revision: 1512 $
+	 */
+	private static class Candidate {
+
+		/** The positions in the 1-largeItems of the antecedent's items. */
+		private int[] m_Antecedent;
+
+		/** The positions in the 1-largeItems of the consequent's items. */
+		private int[] m_Consequent;
+
+		/** The bitset of the antecedent. */
+		private long[] m_AntecedentTidSet;
+
+		/** The bitset of all items of the rule. */
+		private long[] m_TidSet;
+
+		/** The weight of the antecedent. */
+		private int m_AntecedentWeight;
+
+		/** The weight of the rule. */
+		private int m_Weight;
+
+		/** Whether an item can be added to the consequent. */
+		private boolean m_ExpandRight;
+
+		/** The number of the rule in the order it was found. */
+		private int m_Number;
+
+	}
+
+	/**
+	 * Finds the rules of highest weight from the items and the encoded
+	 * instances.
+	 * 
+	 * @param oneLargeItemSet
+	 *            the set of all items, found with a minimum weight of 0
+	 * @param instances
+	 *            the encoded instances
+	 * @param codeMaps
+	 *            the maps from the codes of the instances to the codes of the
+	 *            attributes pretreated, null for an attribute not pretreated
+	 * @param numRules
+	 *            the number of rules to find
+	 * @param minConfidence
+	 *            the minimum confidence
+	 */
+	public TopKRules(LargeItemSet oneLargeItemSet, EncodedInstances instances,
+			int[][] codeMaps, int numRules, double minConfidence) {
+
+		m_OneLargeItems = oneLargeItemSet.getLargeItemSet();
+		m_NumRules = Math.max(numRules, 1);
+		m_minConfidence = minConfidence;
+		m_minWeight = oneLargeItemSet.getOption();
+
+		m_Rules = new PriorityQueue<Candidate>(m_NumRules + 1,
+				new Comparator<Candidate>() {
+					public int compare(Candidate a, Candidate b) {
+						return (a.m_Weight != b.m_Weight) ? a.m_Weight
+								- b.m_Weight : b.m_Number - a.m_Number;
+					}
+				});
+		m_Candidates = new PriorityQueue<Candidate>(11,
+				new Comparator<Candidate>() {
+					public int compare(Candidate a, Candidate b) {
+						return (a.m_Weight != b.m_Weight) ? b.m_Weight
+								- a.m_Weight : a.m_Number - b.m_Number;
+					}
+				});
+
+		m_TidSets = Eclat.tidSets(m_OneLargeItems, instances, codeMaps);
+		findRules();
+		m_TidSets = null;
+		m_Candidates = null;
+		for (Candidate candidate : m_Rules) {
+			candidate.m_AntecedentTidSet = null;
+			candidate.m_TidSet = null;
+		}
+	}
+
+	/**
+	 * Returns the rules found, sorted by decreasing confidence.
+	 * 
+	 * @return the rules sorted
+	 */
+	public Vector<Rule> getRules() {
+
+		Vector<Rule> rules = new Vector<Rule>();
+		LargeItemSet largeItemSet = new LargeItemSet();
+
+		for (Candidate candidate : m_Rules) {
+			int[] items = union(candidate.m_Antecedent, candidate.m_Consequent);
+			LargeItem largeItem = largeItemSet.addLargeItem(m_OneLargeItems,
+					items, candidate.m_Weight);
+			LargeItem antecedent = largeItemSet.addLargeItem(m_OneLargeItems,
+					candidate.m_Antecedent, candidate.m_AntecedentWeight);
+			rules.add(new Rule(antecedent, largeItem.minus(antecedent),
+					(double) candidate.m_Weight / candidate.m_AntecedentWeight,
+					candidate.m_Number));
+		}
+		Collections.sort(rules);
+
+		return rules;
+	}
+
+	/**
+	 * Returns the minimum weight reached, the rules found are above it.
+	 * 
+	 * @return the minimum weight reached
+	 */
+	public int getMinWeight() {
+
+		return m_minWeight;
+	}
+
+	/**
+	 * Returns the number of rules grown.
+	 * 
+	 * @return the number of rules grown
+	 */
+	public int numExpanded() {
+
+		return m_NumExpanded;
+	}
+
+	/**
+	 * Method that finds the rules, from the rules of one item each side.
+	 */
+	private void findRules() {
+
+		// the items by decreasing weight, the weight of a rule is at most the
+		// weight of each of its items
+		Integer[] order = new Integer[m_OneLargeItems.size()];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return m_OneLargeItems.elementAt(b).getWeight()
+						- m_OneLargeItems.elementAt(a).getWeight();
+			}
+		});
+
+		for (int m = 0; m < order.length
+				&& m_OneLargeItems.elementAt(order[m]).getWeight() > m_minWeight; m++) {
+			MiningMonitor.current().check();
+			for (int n = m + 1; n < order.length
+					&& m_OneLargeItems.elementAt(order[n]).getWeight() > m_minWeight; n++) {
+				int i = Math.min(order[m], order[n]), j = Math.max(order[m],
+						order[n]);
+				if (m_OneLargeItems.elementAt(i).getIndexs()[0] == m_OneLargeItems
+						.elementAt(j).getIndexs()[0])
+					continue;
+
+				long[] tidSet = intersect(m_TidSets[i], m_TidSets[j]);
+				int weight = weight(tidSet);
+				if (weight <= m_minWeight)
+					continue;
+
+				addCandidate(new int[] { i }, new int[] { j }, m_TidSets[i],
+						m_OneLargeItems.elementAt(i).getWeight(), tidSet,
+						weight, true);
+				addCandidate(new int[] { j }, new int[] { i }, m_TidSets[j],
+						m_OneLargeItems.elementAt(j).getWeight(), tidSet,
+						weight, true);
+			}
+		}
+
+		Candidate candidate;
+		while ((candidate = m_Candidates.poll()) != null
+				&& candidate.m_Weight > m_minWeight) {
+			MiningMonitor.current().check();
+			m_NumExpanded++;
+			expandLeft(candidate);
+			if (candidate.m_ExpandRight)
+				expandRight(candidate);
+		}
+	}
+
+	/**
+	 * Grows a rule by adding an item after the last item of its antecedent.
+	 * 
+	 * @param candidate
+	 *            the rule
+	 */
+	private void expandLeft(Candidate candidate) {
+
+		int[] antecedent = candidate.m_Antecedent;
+		for (int i = antecedent[antecedent.length - 1] + 1; i < m_OneLargeItems
+				.size(); i++) {
+			if (!canAdd(candidate, i))
+				continue;
+
+			long[] tidSet = intersect(candidate.m_TidSet, m_TidSets[i]);
+			int weight = weight(tidSet);
+			if (weight <= m_minWeight)
+				continue;
+
+			long[] antecedentTidSet = intersect(candidate.m_AntecedentTidSet,
+					m_TidSets[i]);
+			addCandidate(append(antecedent, i), candidate.m_Consequent,
+					antecedentTidSet, weight(antecedentTidSet), tidSet, weight,
+					false);
+		}
+	}
+
+	/**
+	 * Grows a rule by adding an item after the last item of its consequent.
+	 * 
+	 * @param candidate
+	 *            the rule
+	 */
+	private void expandRight(Candidate candidate) {
+
+		int[] consequent = candidate.m_Consequent;
+		for (int i = consequent[consequent.length - 1] + 1; i < m_OneLargeItems
+				.size(); i++) {
+			if (!canAdd(candidate, i))
+				continue;
+
+			long[] tidSet = intersect(candidate.m_TidSet, m_TidSets[i]);
+			int weight = weight(tidSet);
+			if (weight <= m_minWeight)
+				continue;
+
+			addCandidate(candidate.m_Antecedent, append(consequent, i),
+					candidate.m_AntecedentTidSet, candidate.m_AntecedentWeight,
+					tidSet, weight, true);
+		}
+	}
+
+	/**
+	 * Returns true if the item is above the minimum weight and its attribute
+	 * has no item in the rule.
+	 * 
+	 * @param candidate
+	 *            the rule
+	 * @param item
+	 *            the position of the item in the 1-largeItems
+	 * @return true if the item can be added to the rule
+	 */
+	private boolean canAdd(Candidate candidate, int item) {
+
+		if (m_OneLargeItems.elementAt(item).getWeight() <= m_minWeight)
+			return false;
+
+		int index = m_OneLargeItems.elementAt(item).getIndexs()[0];
+		for (int i : candidate.m_Antecedent) {
+			if (m_OneLargeItems.elementAt(i).getIndexs()[0] == index)
+				return false;
+		}
+		for (int i : candidate.m_Consequent) {
+			if (m_OneLargeItems.elementAt(i).getIndexs()[0] == index)
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Adds a rule to grow, and keeps it if it has the minimum confidence. Once
+	 * the number of rules are kept, the minimum weight becomes the weight of
+	 * the rule of lowest weight.
+	 * 
+	 * @param antecedent
+	 *            the positions of the antecedent's items
+	 * @param consequent
+	 *            the positions of the consequent's items
+	 * @param antecedentTidSet
+	 *            the bitset of the antecedent
+	 * @param antecedentWeight
+	 *            the weight of the antecedent
+	 * @param tidSet
+	 *            the bitset of the rule
+	 * @param weight
+	 *            the weight of the rule, above the minimum weight
+	 * @param expandRight
+	 *            whether an item can be added to the consequent
+	 */
+	private void addCandidate(int[] antecedent, int[] consequent,
+			long[] antecedentTidSet, int antecedentWeight, long[] tidSet,
+			int weight, boolean expandRight) {
+
+		Candidate candidate = new Candidate();
+		candidate.m_Antecedent = antecedent;
+		candidate.m_Consequent = consequent;
+		candidate.m_AntecedentTidSet = antecedentTidSet;
+		candidate.m_AntecedentWeight = antecedentWeight;
+		candidate.m_TidSet = tidSet;
+		candidate.m_Weight = weight;
+		candidate.m_ExpandRight = expandRight;
+		candidate.m_Number = m_NumFound++;
+
+		if ((double) weight / antecedentWeight >= m_minConfidence) {
+			m_Rules.add(candidate);
+			if (m_Rules.size() > m_NumRules)
+				m_Rules.poll();
+			if (m_Rules.size() == m_NumRules)
+				m_minWeight = Math.max(m_minWeight, m_Rules.peek().m_Weight);
+		}
+
+		// a rule at the minimum weight can't be grown into a rule above it
+		if (weight > m_minWeight)
+			m_Candidates.add(candidate);
+	}
+
+	/**
+	 * Returns the intersection of two bitsets.
+	 * 
+	 * @param a
+	 *            a bitset
+	 * @param b
+	 *            another bitset
+	 * @return the intersection
+	 */
+	private static long[] intersect(long[] a, long[] b) {
+
+		long[] tidSet = new long[a.length];
+		for (int w = 0; w < tidSet.length; w++)
+			tidSet[w] = a[w] & b[w];
+
+		return tidSet;
+	}
+
+	/**
+	 * Returns the number of bits set in a bitset.
+	 * 
+	 * @param tidSet
+	 *            the bitset
+	 * @return the number of bits set
+	 */
+	private static int weight(long[] tidSet) {
+
+		int weight = 0;
+		for (long word : tidSet)
+			weight += Long.bitCount(word);
+
+		return weight;
+	}
+
+	/**
+	 * Returns the positions followed by a position.
+	 * 
+	 * @param items
+	 *            the positions
+	 * @param item
+	 *            the position to append
+	 * @return the positions appended
+	 */
+	private static int[] append(int[] items, int item) {
+
+		int[] newItems = new int[items.length + 1];
+		System.arraycopy(items, 0, newItems, 0, items.length);
+		newItems[items.length] = item;
+
+		return newItems;
+	}
+
+	/**
+	 * Returns the union of two sets of positions, in increasing order.
+	 * 
+	 * @param a
+	 *            positions in increasing order
+	 * @param b
+	 *            other positions in increasing order
+	 * @return the union in increasing order
+	 */
+	private static int[] union(int[] a, int[] b) {
+
+		int[] items = new int[a.length + b.length];
+		for (int i = 0, j = 0, n = 0; n < items.length; n++)
+			items[n] = (j == b.length || (i < a.length && a[i] < b[j])) ? a[i++]
+					: b[j++];
+
+		return items;
+	}
+
+}
@@ -7,6 +7,7 @@
 package org.java.apriori;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -15,7 +16,17 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.Serializable;
 import java.io.StreamTokenizer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Reads data from an TXT file.
@@ -25,6 +36,24 @@ import java.util.Vector;
  */
 public class TxtReader {
 
+	/** The mode reading the file through a StreamTokenizer. */
+	public static final int MODE_STREAM = 0;
+
+	/** The mode scanning the bytes of the file memory-mapped. */
+	public static final int MODE_MAPPED = 1;
+
+	/** The mode scanning chunks of the file memory-mapped in parallel. */
+	public static final int MODE_PARALLEL = 2;
+
+	/** The mode reading the attributes only, the instances by partitions. */
+	public static final int MODE_PARTITIONED = 3;
+
+	/** The number of chunks for each thread of the parallel mode. */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/** The minimum number of bytes in a chunk of the parallel mode. */
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+
 	/** The source file. */
 	private File m_file = null;
 
@@ -37,9 +66,36 @@ public class TxtReader {
 	/** The vector for attributes. */
 	private Vector<Attribute> attributes = null;
 
-	/** The vector for instances. */
+	/** The vector for instances, built from the encoded instances on demand. */
 	private Vector<Object> instances = null;
 
+	/** The instances encoded with the attributes' values codes. */
+	private EncodedInstances m_EncodedInstances = null;
+
+	/** The position in the file of the first instance. */
+	private long m_InstancesPosition;
+
+	/** The input of the file read by partitions, open during a pass. */
+	private FileInputStream m_PartitionInput = null;
+
+	/** The tokenizer of the instances read by partitions. */
+	private ByteTokenizer m_PartitionTokenizer = null;
+
+	/** The dictionaries of the words of each attribute read by partitions. */
+	private ByteTokenizer.Dictionary[] m_Dictionaries = null;
+
+	/** Whether the values read by partitions are counted in the attributes. */
+	private boolean m_Counting = true;
+
+	/** Whether the pass through the partitions has reached the last one. */
+	private boolean m_PartitionsEnd = false;
+
+	/**
+	 * The number of instances read by partitions, in the first pass through
+	 * the file, or in the current pass through the instances read.
+	 */
+	private int m_NumPartitioned;
+
 	/**
 	 * Class for handling an attribute. Once an attribute has been created, it
 	 * can't be changed.
@@ -58,11 +114,14 @@ public class TxtReader {
 		/** The attribute's type. */
 		private int m_Type;
 
-		/** The attribute's values. */
+		/** The attribute's values, in the order they were added. */
 		private Vector<String> m_Values = null;
 
+		/** The index of each value in the attribute's values. */
+		private HashMap<String, Integer> m_Indexs = null;
+
 		/** The value' weights. */
-		private Vector<Integer> m_Weights = null;
+		private int[] m_Weights = null;
 
 		/**
 		 * Constructor for a attribute.
@@ -70,7 +129,8 @@ public class TxtReader {
 		public Attribute() {
 
 			m_Values = new Vector<String>();
-			m_Weights = new Vector<Integer>();
+			m_Indexs = new HashMap<String, Integer>();
+			m_Weights = new int[16];
 		}
 
 		/**
@@ -131,10 +191,11 @@ public class TxtReader {
 		 * 
 		 * @param value
 		 *            the attribute value
+		 * @return the code of the value, its index in the attribute's values
 		 */
-		private void append(String value) {
+		private int append(String value) {
 
-			append(value, 1);
+			return append(value, 1);
 		}
 
 		/**
@@ -144,17 +205,50 @@ public class TxtReader {
 		 *            the attribute value
 		 * @param number
 		 *            the number of added
+		 * @return the code of the value, its index in the attribute's values
 		 */
-		private void append(String value, int number) {
+		int append(String value, int number) {
 
-			int index = m_Values.indexOf(value);
-			if (index != -1) {
-				m_Weights.setElementAt(m_Weights.elementAt(index) + number,
-						index);
-			} else {
+			Integer index = m_Indexs.get(value);
+			if (index == null) {
+				index = m_Values.size();
+				m_Indexs.put(value, index);
 				m_Values.addElement(value);
-				m_Weights.addElement(new Integer(number));
+				if (index == m_Weights.length) {
+					int[] weights = new int[index * 2];
+					System.arraycopy(m_Weights, 0, weights, 0, index);
+					m_Weights = weights;
+				}
 			}
+			m_Weights[index] += number;
+
+			return index;
+		}
+
+		/**
+		 * Adds an attribute value already added, given as its code.
+		 * 
+		 * @param code
+		 *            the code of the value
+		 */
+		void appendCode(int code) {
+
+			m_Weights[code]++;
+		}
+
+		/**
+		 * Returns the code of the value, its index in the attribute's values.
+		 * 
+		 * @param value
+		 *            the attribute value
+		 * @return the code of the value, or -1 if the attribute has no such
+		 *         value
+		 */
+		public int indexOfValue(String value) {
+
+			Integer index = m_Indexs.get(value);
+
+			return (index != null) ? index : -1;
 		}
 
 		/**
@@ -168,14 +262,33 @@ public class TxtReader {
 		 */
 		public Attribute pretreat(String option) {
 
-			if (option == null)
+			return pretreat(Pretreat.compile(option), null);
+		}
+
+		/**
+		 * Returns this attribute after pretreatment. Each value is pretreated
+		 * once, and the code of its pretreated value is stored in the code
+		 * map.
+		 * 
+		 * @param pretreat
+		 *            the compiled pretreatment, or null for none
+		 * @param codeMap
+		 *            the array receiving the code of each value in the
+		 *            attribute pretreated, or null
+		 * @return this attribute after pretreatment, or this attribute if the
+		 *         pretreatment is null
+		 */
+		public Attribute pretreat(Pretreat pretreat, int[] codeMap) {
+
+			if (pretreat == null)
 				return this;
 
 			Attribute attribute = new Attribute(m_Name);
 			for (int i = 0; i < numValues(); i++) {
-				attribute.append(
-						Pretreat.pretreat(m_Values.elementAt(i), option),
-						m_Weights.elementAt(i));
+				int code = attribute.append(
+						pretreat.pretreat(m_Values.elementAt(i)), m_Weights[i]);
+				if (codeMap != null)
+					codeMap[i] = code;
 			}
 
 			return attribute;
@@ -192,13 +305,32 @@ public class TxtReader {
 		}
 
 		/**
-		 * Returns the vector of weights.
+		 * Returns the weight of a value.
+		 * 
+		 * @param index
+		 *            the index of the value
+		 * @return the weight of the value
+		 */
+		public int getWeight(int index) {
+
+			if (index < 0 || index >= numValues())
+				throw new ArrayIndexOutOfBoundsException(index);
+
+			return m_Weights[index];
+		}
+
+		/**
+		 * Returns the vector of weights. The vector is a copy of the weights.
 		 * 
 		 * @return the vector of weights
 		 */
 		public Vector<Integer> getWeights() {
 
-			return m_Weights;
+			Vector<Integer> weights = new Vector<Integer>(numValues());
+			for (int i = 0; i < numValues(); i++)
+				weights.add(m_Weights[i]);
+
+			return weights;
 		}
 
 		/**
@@ -237,11 +369,139 @@ public class TxtReader {
 	 */
 	public TxtReader(File file) {
 
+		this(file, MODE_STREAM);
+	}
+
+	/**
+	 * Reads the data completely from the file in the given mode. The parallel
+	 * mode uses one thread for each available processor.
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param mode
+	 *            the mode, MODE_STREAM, MODE_MAPPED or MODE_PARALLEL
+	 */
+	public TxtReader(File file, int mode) {
+
+		this(file, mode, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Reads the data from the file in the given mode. The partitioned mode
+	 * reads only the attributes, the instances are read with nextPartition().
+	 * The mapped, parallel and partitioned modes fall back to reading the data
+	 * completely in the stream mode if the default charset can't be scanned as
+	 * bytes. A snapshot is read completely, in any mode.
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param mode
+	 *            the mode, MODE_STREAM, MODE_MAPPED, MODE_PARALLEL or
+	 *            MODE_PARTITIONED
+	 * @param parallelism
+	 *            the number of threads of the parallel mode
+	 */
+	public TxtReader(File file, int mode, int parallelism) {
+
+		this(file, null, mode, parallelism);
+	}
+
+	/**
+	 * Reads the data from a snapshot of the file, or from the file in the
+	 * given mode if the snapshot is null or can't be read.
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param snapshot
+	 *            the snapshot of the source file, or null for none
+	 * @param mode
+	 *            the mode, MODE_STREAM, MODE_MAPPED, MODE_PARALLEL or
+	 *            MODE_PARTITIONED
+	 * @param parallelism
+	 *            the number of threads of the parallel mode
+	 */
+	TxtReader(File file, File snapshot, int mode, int parallelism) {
+
 		this();
-		setSource(file);
-		initTokenizer();
-		readAttributes();
-		readInstances();
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		metrics.reset();
+		metrics.begin(MiningMetrics.PHASE_PARSE, 0);
+		try {
+			if (snapshot == null || !readSnapshot(file, snapshot)) {
+				if (Snapshot.isSnapshot(file))
+					readSnapshot(file, file);
+				else
+					readText(file, mode, parallelism);
+			}
+			if (m_EncodedInstances != null)
+				metrics.scanned(m_EncodedInstances.numInstances());
+		} finally {
+			metrics.end();
+		}
+	}
+
+	/**
+	 * Reads the data from the TXT file in the given mode.
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param mode
+	 *            the mode, MODE_STREAM, MODE_MAPPED, MODE_PARALLEL or
+	 *            MODE_PARTITIONED
+	 * @param parallelism
+	 *            the number of threads of the parallel mode
+	 */
+	private void readText(File file, int mode, int parallelism) {
+
+		if (mode == MODE_PARTITIONED
+				&& ByteTokenizer.isSupported(Charset.defaultCharset())) {
+			readMapped(file, 0);
+		} else if ((mode == MODE_MAPPED || mode == MODE_PARALLEL)
+				&& ByteTokenizer.isSupported(Charset.defaultCharset())) {
+			readMapped(file, (mode == MODE_PARALLEL) ? parallelism : 1);
+		} else {
+			setSource(file);
+			initTokenizer();
+			readAttributes();
+			readInstances();
+		}
+	}
+
+	/**
+	 * Reads the attributes and instances of a snapshot.
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param snapshot
+	 *            the snapshot, which may be the source file
+	 * @return true if the snapshot has been read
+	 */
+	private boolean readSnapshot(File file, File snapshot) {
+
+		try {
+			Snapshot.read(this, snapshot);
+			m_file = file;
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Sets the attributes and the instances read completely.
+	 * 
+	 * @param attributes
+	 *            the vector of attributes
+	 * @param encodedInstances
+	 *            the instances encoded with the attributes' values codes
+	 */
+	void setData(Vector<Attribute> attributes,
+			EncodedInstances encodedInstances) {
+
+		this.attributes = attributes;
+		m_EncodedInstances = encodedInstances;
+		instances = null;
 	}
 
 	/**
@@ -269,17 +529,31 @@ public class TxtReader {
 		if (m_sourceReader == null)
 			return;
 
-		m_Tokenizer = new StreamTokenizer(m_sourceReader);
-		m_Tokenizer.resetSyntax();
-		m_Tokenizer.whitespaceChars(0, ' ');
-		m_Tokenizer.wordChars(' ' + 1, '\u00FF');
-		m_Tokenizer.whitespaceChars(',', ',');
-		m_Tokenizer.commentChar('%');
-		m_Tokenizer.quoteChar('"');
-		m_Tokenizer.quoteChar('\'');
-		m_Tokenizer.ordinaryChar('{');
-		m_Tokenizer.ordinaryChar('}');
-		m_Tokenizer.eolIsSignificant(true);
+		m_Tokenizer = newTokenizer(m_sourceReader);
+	}
+
+	/**
+	 * Returns a StreamTokenizer with the syntax of the TXT files.
+	 * 
+	 * @param reader
+	 *            the reader of the stream
+	 * @return the tokenizer for reading the stream
+	 */
+	static StreamTokenizer newTokenizer(Reader reader) {
+
+		StreamTokenizer tokenizer = new StreamTokenizer(reader);
+		tokenizer.resetSyntax();
+		tokenizer.whitespaceChars(0, ' ');
+		tokenizer.wordChars(' ' + 1, '\u00FF');
+		tokenizer.whitespaceChars(',', ',');
+		tokenizer.commentChar('%');
+		tokenizer.quoteChar('"');
+		tokenizer.quoteChar('\'');
+		tokenizer.ordinaryChar('{');
+		tokenizer.ordinaryChar('}');
+		tokenizer.eolIsSignificant(true);
+
+		return tokenizer;
 	}
 
 	/**
@@ -293,7 +567,8 @@ public class TxtReader {
 		attributes = new Vector<Attribute>();
 
 		try {
-			while (m_Tokenizer.nextToken() != StreamTokenizer.TT_EOL) {
+			while (m_Tokenizer.nextToken() != StreamTokenizer.TT_EOL
+					&& m_Tokenizer.ttype != StreamTokenizer.TT_EOF) {
 				attributes.add(new Attribute(m_Tokenizer.sval));
 			}
 		} catch (IOException e) {
@@ -309,8 +584,9 @@ public class TxtReader {
 		if (m_Tokenizer == null)
 			return;
 
-		instances = new Vector<Object>();
-		String[] instance = new String[numAttributes()];
+		m_EncodedInstances = new EncodedInstances(attributes);
+		int[] instance = new int[numAttributes()];
+		String value = null;
 		int index = -1;
 
 		try {
@@ -319,21 +595,412 @@ public class TxtReader {
 						&& ++index < numAttributes()) {
 
 					if (m_Tokenizer.ttype == StreamTokenizer.TT_WORD)
-						instance[index] = m_Tokenizer.sval;
+						value = m_Tokenizer.sval;
 					else if (m_Tokenizer.ttype == StreamTokenizer.TT_NUMBER)
-						instance[index] = "" + (int) m_Tokenizer.nval;
+						value = "" + (int) m_Tokenizer.nval;
+					else
+						value = null;
 
-					attributes.elementAt(index).append(instance[index]);
+					instance[index] = attributes.elementAt(index).append(value);
 				} else {
 					if (index + 1 >= numAttributes())
-						instances.add(instance);
-					instance = new String[numAttributes()];
+						m_EncodedInstances.add(instance);
 					index = -1;
 				}
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+
+		m_EncodedInstances.trimToSize();
+	}
+
+	/**
+	 * Reads and stores attributes and instances of an TXT file memory-mapped.
+	 * The first line is read with the StreamTokenizer, the instances are
+	 * scanned as bytes, and a word already seen for an attribute is looked up
+	 * by its bytes without being decoded. With more than one thread, the
+	 * instances are split at line ends into chunks scanned in parallel. With
+	 * no thread, the instances are left to be read by partitions.
+	 * 
+	 * @param file
+	 *            the source file
+	 * @param parallelism
+	 *            the number of threads scanning the instances, 0 for none
+	 */
+	private void readMapped(File file, int parallelism) {
+
+		FileInputStream in = null;
+
+		try {
+			in = new FileInputStream(file);
+			m_file = file;
+			FileChannel channel = in.getChannel();
+			ByteTokenizer tokenizer = new ByteTokenizer(channel, 0,
+					channel.size());
+
+			int type;
+			do {
+				type = tokenizer.nextToken();
+			} while (type != StreamTokenizer.TT_EOL
+					&& type != StreamTokenizer.TT_EOF);
+
+			ByteBuffer header = ByteBuffer.allocate((int) tokenizer.position());
+			while (header.hasRemaining()
+					&& channel.read(header, header.position()) >= 0)
+				;
+			m_sourceReader = new InputStreamReader(new ByteArrayInputStream(
+					header.array()));
+			initTokenizer();
+			readAttributes();
+
+			m_InstancesPosition = tokenizer.position();
+			if (parallelism == 0) {
+				m_Dictionaries = new ByteTokenizer.Dictionary[numAttributes()];
+				for (int i = 0; i < m_Dictionaries.length; i++)
+					m_Dictionaries[i] = new ByteTokenizer.Dictionary();
+				return;
+			}
+
+			long from = tokenizer.position(), to = channel.size();
+			int numChunks = (int) Math.min((long) parallelism
+					* CHUNKS_PER_THREAD, (to - from) / MIN_CHUNK_SIZE);
+			if (parallelism <= 1 || numChunks <= 1)
+				m_EncodedInstances = readInstances(tokenizer, attributes);
+			else
+				m_EncodedInstances = readChunks(channel, from, to, numChunks,
+						parallelism);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads chunks of the instances in parallel and merges them in the order
+	 * of the chunks. The values of each chunk are added to the attributes in
+	 * the order the chunk found them, so the codes and the order of the
+	 * values are the ones of a serial read.
+	 * 
+	 * @param channel
+	 *            the channel of the file
+	 * @param from
+	 *            the position in the file of the first instance
+	 * @param to
+	 *            the position in the file of the end of the instances
+	 * @param numChunks
+	 *            the number of chunks
+	 * @param parallelism
+	 *            the number of threads
+	 * @return the encoded instances
+	 * @throws IOException
+	 *             if a chunk can't be read
+	 */
+	private EncodedInstances readChunks(final FileChannel channel, long from,
+			long to, int numChunks, int parallelism) throws IOException {
+
+		List<Callable<EncodedInstances>> tasks = new ArrayList<Callable<EncodedInstances>>();
+		long start = from;
+		for (int i = 1; i <= numChunks && start < to; i++) {
+			long end = (i == numChunks) ? to : ByteTokenizer.nextLine(channel,
+					Math.max(start, from + (to - from) * i / numChunks), to);
+			if (end <= start)
+				continue;
+
+			final long chunkFrom = start, chunkTo = end;
+			tasks.add(new Callable<EncodedInstances>() {
+				public EncodedInstances call() throws IOException {
+					Vector<Attribute> chunkAttributes = new Vector<Attribute>();
+					for (Attribute attribute : attributes)
+						chunkAttributes.add(new Attribute(attribute.getName()));
+					return readInstances(new ByteTokenizer(channel, chunkFrom,
+							chunkTo), chunkAttributes);
+				}
+			});
+			start = end;
+		}
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Future<EncodedInstances>> chunks = pool.invokeAll(tasks);
+
+			int numInstances = 0;
+			for (Future<EncodedInstances> chunk : chunks)
+				numInstances += chunk.get().numInstances();
+
+			EncodedInstances instances = new EncodedInstances(attributes,
+					numInstances);
+			for (int c = 0; c < chunks.size(); c++) {
+				EncodedInstances chunk = chunks.get(c).get();
+				chunks.set(c, null);
+				instances.add(chunk, mergeAttributes(chunk.getAttributes()));
+			}
+
+			return instances;
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Appends new instances, read with other attributes of the same names, to
+	 * the instances. The values of the new instances are added to the
+	 * attributes with their weights.
+	 * 
+	 * @param newInstances
+	 *            the new instances
+	 * @throws IllegalArgumentException
+	 *             if the new instances have another number of attributes, or
+	 *             an attribute of another name at the same index
+	 * @throws IllegalStateException
+	 *             if the instances are read by partitions
+	 */
+	public void addInstances(EncodedInstances newInstances) {
+
+		if (m_EncodedInstances == null)
+			throw new IllegalStateException(
+					"The instances are read by partitions");
+		if (newInstances.numAttributes() != numAttributes())
+			throw new IllegalArgumentException("The new instances have "
+					+ newInstances.numAttributes() + " attributes, not "
+					+ numAttributes());
+		for (int i = 0; i < numAttributes(); i++) {
+			String name = attributes.elementAt(i).getName();
+			String newName = newInstances.getAttributes().elementAt(i)
+					.getName();
+			if (name == null ? newName != null : !name.equals(newName))
+				throw new IllegalArgumentException("The new attribute " + i
+						+ " is " + newName + ", not " + name);
+		}
+
+		m_EncodedInstances.add(newInstances,
+				mergeAttributes(newInstances.getAttributes()));
+		instances = null;
+	}
+
+	/**
+	 * Adds the values of the attributes of a chunk to the attributes, in the
+	 * order of each chunk attribute's values.
+	 * 
+	 * @param chunkAttributes
+	 *            the attributes of a chunk
+	 * @return the maps from the codes of the chunk to the codes of the
+	 *         attributes
+	 */
+	private int[][] mergeAttributes(Vector<Attribute> chunkAttributes) {
+
+		int[][] codeMaps = new int[numAttributes()][];
+
+		for (int i = 0; i < numAttributes(); i++) {
+			Attribute attribute = attributes.elementAt(i);
+			Attribute chunkAttribute = chunkAttributes.elementAt(i);
+			codeMaps[i] = new int[chunkAttribute.numValues()];
+			for (int j = 0; j < chunkAttribute.numValues(); j++)
+				codeMaps[i][j] = attribute.append(chunkAttribute.getValues()
+						.elementAt(j), chunkAttribute.getWeight(j));
+		}
+
+		return codeMaps;
+	}
+
+	/**
+	 * Reads all the instances from the tokens of the bytes.
+	 * 
+	 * @param tokenizer
+	 *            the tokenizer of the bytes
+	 * @param attributes
+	 *            the attributes receiving the values
+	 * @return the encoded instances
+	 * @throws IOException
+	 *             if the bytes can't be read
+	 */
+	private EncodedInstances readInstances(ByteTokenizer tokenizer,
+			Vector<Attribute> attributes) throws IOException {
+
+		EncodedInstances instances = new EncodedInstances(attributes);
+		ByteTokenizer.Dictionary[] dictionaries = new ByteTokenizer.Dictionary[attributes
+				.size()];
+		for (int i = 0; i < dictionaries.length; i++)
+			dictionaries[i] = new ByteTokenizer.Dictionary();
+
+		readInstances(tokenizer, dictionaries, instances, Integer.MAX_VALUE,
+				true);
+		instances.trimToSize();
+
+		return instances;
+	}
+
+	/**
+	 * Reads instances from the tokens of the bytes until the instances hold
+	 * the maximum number or the tokens end. The tokens are handled like the
+	 * tokens of the StreamTokenizer in readInstances().
+	 * 
+	 * @param tokenizer
+	 *            the tokenizer of the bytes
+	 * @param dictionaries
+	 *            the dictionaries of the words of each attribute
+	 * @param instances
+	 *            the instances receiving the instances read, the attributes
+	 *            of which receive the values
+	 * @param maxInstances
+	 *            the maximum number of instances
+	 * @param counting
+	 *            whether the weights of the values are counted
+	 * @return false if the tokens have ended
+	 * @throws IOException
+	 *             if the bytes can't be read
+	 */
+	private boolean readInstances(ByteTokenizer tokenizer,
+			ByteTokenizer.Dictionary[] dictionaries,
+			EncodedInstances instances, int maxInstances, boolean counting)
+			throws IOException {
+
+		Vector<Attribute> attributes = instances.getAttributes();
+		Charset charset = Charset.defaultCharset();
+		int numAttributes = attributes.size();
+		int number = counting ? 1 : 0;
+		int[] instance = new int[numAttributes];
+		int index = -1;
+
+		int type;
+		while ((type = tokenizer.nextToken()) != StreamTokenizer.TT_EOF) {
+			if (type != StreamTokenizer.TT_EOL && ++index < numAttributes) {
+				Attribute attribute = attributes.elementAt(index);
+
+				if (type == StreamTokenizer.TT_WORD) {
+					int hash = tokenizer.wordHash();
+					int code = dictionaries[index].get(tokenizer, hash);
+					if (code >= 0) {
+						if (counting)
+							attribute.appendCode(code);
+					} else {
+						byte[] word = tokenizer.word();
+						code = attribute.append(new String(word, charset),
+								number);
+						dictionaries[index].put(word, hash, code);
+					}
+					instance[index] = code;
+				} else
+					instance[index] = attribute.append(null, number);
+			} else {
+				if (index + 1 >= numAttributes) {
+					instances.add(instance);
+					if (instances.numInstances() >= maxInstances)
+						return true;
+				}
+				index = -1;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the next partition of the instances, read from the file in the
+	 * partitioned mode, or taken from the instances read otherwise. The
+	 * columns of a partition read from the file are allocated for the maximum
+	 * number of instances. The values are counted in the attributes during the
+	 * first pass through the partitions only.
+	 * 
+	 * @param maxInstances
+	 *            the maximum number of instances in the partition
+	 * @return the next partition of the instances, or null after the last one
+	 */
+	public EncodedInstances nextPartition(int maxInstances) {
+
+		if (m_PartitionsEnd)
+			return null;
+
+		if (m_EncodedInstances != null) {
+			EncodedInstances partition = m_EncodedInstances.copy(
+					m_NumPartitioned,
+					Math.min(numInstances(), m_NumPartitioned + maxInstances));
+			m_NumPartitioned += partition.numInstances();
+			m_PartitionsEnd = m_NumPartitioned >= numInstances();
+			return (partition.numInstances() > 0) ? partition : null;
+		}
+
+		if (m_Dictionaries == null)
+			return null;
+
+		MiningMetrics metrics = MiningMetrics.getInstance();
+		metrics.begin(MiningMetrics.PHASE_PARSE, 0);
+		EncodedInstances partition = new EncodedInstances(attributes,
+				maxInstances);
+		try {
+			if (m_PartitionTokenizer == null) {
+				m_PartitionInput = new FileInputStream(m_file);
+				FileChannel channel = m_PartitionInput.getChannel();
+				m_PartitionTokenizer = new ByteTokenizer(channel,
+						m_InstancesPosition, channel.size());
+			}
+
+			if (!readInstances(m_PartitionTokenizer, m_Dictionaries, partition,
+					maxInstances, m_Counting)) {
+				m_PartitionsEnd = true;
+				closePartitions();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			m_PartitionsEnd = true;
+			closePartitions();
+		} finally {
+			metrics.scanned(partition.numInstances());
+			metrics.end();
+		}
+
+		if (m_Counting)
+			m_NumPartitioned += partition.numInstances();
+		if (m_PartitionsEnd)
+			m_Counting = false;
+
+		return (partition.numInstances() > 0) ? partition : null;
+	}
+
+	/**
+	 * Restarts the pass through the partitions at the first instance.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the first pass through the partitions of the file is not
+	 *             complete, its values would be counted twice
+	 */
+	public void rewind() {
+
+		if (m_PartitionTokenizer != null && m_Counting)
+			throw new IllegalStateException(
+					"The first pass through the partitions is not complete");
+
+		closePartitions();
+		m_PartitionsEnd = false;
+		if (m_EncodedInstances != null)
+			m_NumPartitioned = 0;
+	}
+
+	/**
+	 * Closes the file read by partitions.
+	 */
+	private void closePartitions() {
+
+		m_PartitionTokenizer = null;
+		if (m_PartitionInput != null) {
+			try {
+				m_PartitionInput.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			m_PartitionInput = null;
+		}
 	}
 
 	/**
@@ -347,13 +1014,17 @@ public class TxtReader {
 	}
 
 	/**
-	 * Returns the number of instances.
+	 * Returns the number of instances. In the partitioned mode, this is the
+	 * number of instances read in the first pass through the partitions.
 	 * 
 	 * @return the number of instances
 	 */
 	public int numInstances() {
 
-		return instances.size();
+		if (m_EncodedInstances == null)
+			return m_NumPartitioned;
+
+		return m_EncodedInstances.numInstances();
 	}
 
 	/**
@@ -377,15 +1048,32 @@ public class TxtReader {
 	}
 
 	/**
-	 * Returns the vector of instances.
+	 * Returns the vector of instances. The string arrays are built from the
+	 * encoded instances on the first call and share the attributes' values.
 	 * 
 	 * @return the vector of instances
 	 */
 	public Vector<Object> getInstances() {
 
+		if (instances == null && m_EncodedInstances != null) {
+			instances = new Vector<Object>(numInstances());
+			for (int i = 0; i < numInstances(); i++)
+				instances.add(m_EncodedInstances.instance(i));
+		}
+
 		return instances;
 	}
 
+	/**
+	 * Returns the instances encoded with the attributes' values codes.
+	 * 
+	 * @return the encoded instances, or null in the partitioned mode
+	 */
+	public EncodedInstances getEncodedInstances() {
+
+		return m_EncodedInstances;
+	}
+
 	/**
 	 * Returns a description of this txtReader in TXT format.
 	 * 
@@ -393,7 +1081,7 @@ public class TxtReader {
 	 */
 	public String toString() {
 
-		if (attributes == null || instances == null)
+		if (attributes == null || m_EncodedInstances == null)
 			return null;
 
 		StringBuilder sb = new StringBuilder("");
@@ -403,7 +1091,7 @@ public class TxtReader {
 		sb.append("\n");
 
 		sb.append("@data\n\n");
-		for (Object instance : instances) {
+		for (Object instance : getInstances()) {
 			for (String str : (String[]) instance)
 				sb.append(" " + str);
 			sb.append("\n");
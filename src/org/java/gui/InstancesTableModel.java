@@ -0,0 +1,113 @@
+/*
+ *    InstancesTableModel.java
+ *    Copyright (C) 2015 University of NanChang, JiangXi, China
+ *
+ */
+
+package org.java.gui;
+
+import javax.swing.table.AbstractTableModel;
+
+import org.java.apriori.Apriori;
+
+/**
+ * The table model of the instances, the choosed attributes pretreated. The
+ * cells are read from the encoded instances when the table shows them, and
+ * only their values are pretreated, so no copy of the instances is made.
+ * 
+ * @author ykzhang
+ * @version $Revision: 1512 $
+ */
+public class InstancesTableModel extends AbstractTableModel {
+
+	/** for serialization */
+	private static final long serialVersionUID = -6193958167384120582L;
+
+	/** Apriori operations. */
+	private Apriori m_Apriori;
+
+	/** the index of the attribute of each column. */
+	private int[] m_Attributes;
+
+	/** column names as an string array. */
+	private String[] m_ColumnNames;
+
+	/** the number of rows. */
+	private int m_NumRows;
+
+	/**
+	 * Creates the table model of the instances.
+	 * 
+	 * @param apriori
+	 *            the Apriori operations holding the instances
+	 * @throws IllegalStateException
+	 *             if the instances are read by partitions
+	 */
+	public InstancesTableModel(Apriori apriori) {
+
+		if (apriori.isPartitioned())
+			throw new IllegalStateException(
+					"The instances are read by partitions");
+
+		m_Apriori = apriori;
+		m_ColumnNames = apriori.chooseAttributesToStringArray();
+		m_NumRows = apriori.numInstances();
+
+		m_Attributes = new int[m_ColumnNames.length];
+		int numAttributes = apriori.attributesToStringArray().length;
+		for (int i = 0, j = 0; i < numAttributes; i++) {
+			if (apriori.isChooseAttribute(i))
+				m_Attributes[j++] = i;
+		}
+
+		// the attributes are pretreated before the table is shown
+		apriori.pretreatAttributes();
+	}
+
+	/**
+	 * Returns the number of rows.
+	 * 
+	 * @return the number of instances
+	 */
+	public int getRowCount() {
+
+		return m_NumRows;
+	}
+
+	/**
+	 * Returns the number of columns.
+	 * 
+	 * @return the number of choosed attributes
+	 */
+	public int getColumnCount() {
+
+		return m_ColumnNames.length;
+	}
+
+	/**
+	 * Returns the name of a column.
+	 * 
+	 * @param column
+	 *            the index of the column
+	 * @return the name of the attribute
+	 */
+	public String getColumnName(int column) {
+
+		return m_ColumnNames[column];
+	}
+
+	/**
+	 * Returns the value of a cell, pretreated.
+	 * 
+	 * @param row
+	 *            the index of the instance
+	 * @param column
+	 *            the index of the column
+	 * @return the instance's value pretreated
+	 */
+	public Object getValueAt(int row, int column) {
+
+		return m_Apriori.pretreatValue(row, m_Attributes[column]);
+	}
+
+}
@@ -6,11 +6,18 @@
 
 package org.java.gui;
 
+import java.awt.BorderLayout;
 import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
+import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -18,17 +25,26 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumnModel;
+import javax.swing.table.TableModel;
 
 import org.java.apriori.Apriori;
+import org.java.apriori.CancellationToken;
+import org.java.apriori.MiningListener;
+import org.java.apriori.MiningMetrics;
+import org.java.apriori.Snapshot;
+import org.java.apriori.TxtReader;
 
 /**
  * The main frame for data mining.
@@ -53,17 +69,14 @@ public class MainFrame extends JFrame {
 		private static final long serialVersionUID = 3750484369708144828L;
 
 		/**
-		 * Creates the datetable with the given set of tabledata and the column
-		 * names.
+		 * Creates the datetable with the given table model.
 		 * 
-		 * @param tableData
-		 *            the given set of data
-		 * @param columnNames
-		 *            the column names
+		 * @param tableModel
+		 *            the table model reading the data
 		 */
-		public DataTable(Object[][] tableData, Object[] columnNames) {
+		public DataTable(TableModel tableModel) {
 
-			super(tableData, columnNames);
+			super(tableModel);
 
 		}
 
@@ -83,14 +96,177 @@ public class MainFrame extends JFrame {
 
 	} // DataTable
 
+	/**
+	 * Mines in the background, the progress shown in the status bar.
+	 * 
+	 * @author ykzhang
+	 * @version $Revision: 1512 $
+	 */
+	private class MiningWorker extends SwingWorker<String, Object[]> implements
+			MiningListener {
+
+		/** whether the large itemsets are found. */
+		private boolean m_FindLargeItemSets;
+
+		/** whether the association rules are found. */
+		private boolean m_FindRules;
+
+		/**
+		 * Creates the worker.
+		 * 
+		 * @param findLargeItemSets
+		 *            whether the large itemsets are found
+		 * @param findRules
+		 *            whether the association rules are found
+		 */
+		private MiningWorker(boolean findLargeItemSets, boolean findRules) {
+
+			m_FindLargeItemSets = findLargeItemSets;
+			m_FindRules = findRules;
+		}
+
+		/**
+		 * Mines and returns the result.
+		 * 
+		 * @return the result as a string
+		 */
+		protected String doInBackground() {
+
+			if (m_FindLargeItemSets)
+				m_Apriori.findLargeItemSets();
+			if (m_FindRules)
+				m_Apriori.findAssociationsRules();
+
+			if (m_FindLargeItemSets && m_FindRules)
+				return m_Apriori.toString();
+			return m_FindRules ? m_Apriori.ruleSetToString() : m_Apriori
+					.lsToString();
+		}
+
+		/**
+		 * Publishes the progress, from the mining threads.
+		 * 
+		 * @param phase
+		 *            the phase
+		 * @param level
+		 *            the level
+		 * @param numCandidates
+		 *            the number of candidates
+		 * @param numRowsScanned
+		 *            the number of instances scanned
+		 */
+		public void progress(String phase, int level, long numCandidates,
+				long numRowsScanned) {
+
+			publish(new Object[] { phase, level, numCandidates, numRowsScanned });
+		}
+
+		/**
+		 * Shows the last progress published.
+		 * 
+		 * @param chunks
+		 *            the progress published
+		 */
+		protected void process(List<Object[]> chunks) {
+
+			if (m_Token == null || m_Token.isCancelled())
+				return;
+
+			Object[] progress = chunks.get(chunks.size() - 1);
+			showProgress((String) progress[0], (Integer) progress[1],
+					(Long) progress[2], (Long) progress[3]);
+		}
+
+		/**
+		 * Prints the result, or that the mining is cancelled.
+		 */
+		protected void done() {
+
+			endMining();
+			try {
+				String result = get();
+				if (m_FindLargeItemSets)
+					m_AssociationRules.setEnabled(true);
+				printInformation(result);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				if (m_FindLargeItemSets)
+					m_AssociationRules.setEnabled(false);
+				if (e.getCause() instanceof CancellationException) {
+					printInformation("ھȡ\n");
+				} else {
+					e.getCause().printStackTrace();
+					JOptionPane.showMessageDialog(null, String.valueOf(e
+							.getCause()), "ھ", JOptionPane.ERROR_MESSAGE);
+				}
+			}
+		}
+
+	} // MiningWorker
+
+	/**
+	 * Writes the snapshot of the data read in the background.
+	 * 
+	 * @author ykzhang
+	 * @version $Revision: 1512 $
+	 */
+	private class SnapshotWorker extends SwingWorker<Boolean, Object> {
+
+		/** the reader of the data. */
+		private TxtReader m_TxtReader;
+
+		/**
+		 * Creates the worker.
+		 * 
+		 * @param txtReader
+		 *            the reader of the data
+		 */
+		private SnapshotWorker(TxtReader txtReader) {
+
+			m_TxtReader = txtReader;
+		}
+
+		/**
+		 * Writes the snapshot.
+		 * 
+		 * @return true if the snapshot has been written
+		 * @throws Exception
+		 *             if the snapshot can't be written
+		 */
+		protected Boolean doInBackground() throws Exception {
+
+			return Snapshot.cache(m_TxtReader);
+		}
+
+		/**
+		 * Shows that the snapshot is written, or why it can't be.
+		 */
+		protected void done() {
+
+			if (m_Token == null)
+				m_Status.setText("");
+			try {
+				if (get() && m_Token == null)
+					m_Status.setText("ѱ棺"
+							+ Snapshot.snapshotOf(m_TxtReader.getFile())
+									.getName());
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				JOptionPane.showMessageDialog(null, "޷գ"
+						+ e.getCause().getMessage(), "",
+						JOptionPane.ERROR_MESSAGE);
+			}
+		}
+
+	} // SnapshotWorker
+
 	/** Apriori operations. */
 	private Apriori m_Apriori;
 
-	/** table data as an object array. */
-	private Object[][] m_TableData;
-
-	/** column names as an string array. */
-	private String[] m_ColumnNames;
+	/** table data read from the instances. */
+	private InstancesTableModel m_TableModel;
 
 	/** column names as an string array. */
 	private String[] m_AttributeNames;
@@ -116,6 +292,18 @@ public class MainFrame extends JFrame {
 	/** the test area for result. */
 	private JTextArea m_Result;
 
+	/** the label for the progress. */
+	private JLabel m_Status;
+
+	/** the progress bar. */
+	private JProgressBar m_ProgressBar;
+
+	/** the button cancelling the mining. */
+	private JButton m_Cancel;
+
+	/** the token cancelling the mining running, null if none. */
+	private CancellationToken m_Token;
+
 	/** the menu bar. */
 	private JMenuBar m_MenuBar;
 
@@ -140,6 +328,9 @@ public class MainFrame extends JFrame {
 	/** the menu item mining options. */
 	private JMenuItem m_MiningOptions;
 
+	/** the menu item saving the snapshots of the data opened. */
+	private JCheckBoxMenuItem m_SaveSnapshot;
+
 	/** the menu item largeItemSets. */
 	private JMenuItem m_LargeItemSets;
 
@@ -173,16 +364,18 @@ public class MainFrame extends JFrame {
 		m_Frame = this;
 		setSize(800, 700);
 
-		setLayout(new GridLayout(2, 1, 0, 0));
+		setLayout(new BorderLayout());
+		JPanel panes = new JPanel(new GridLayout(2, 1, 0, 0));
+		add(panes, BorderLayout.CENTER);
 
 		m_DataScrollPane = new JScrollPane();
-		add(m_DataScrollPane);
+		panes.add(m_DataScrollPane);
 		m_DataLabel = new JLabel("");
 		m_DataLabel.setFont(new Font("΢ź", Font.PLAIN, 13));
 		m_DataScrollPane.setColumnHeaderView(m_DataLabel);
 
 		m_ResultScrollPane = new JScrollPane();
-		add(m_ResultScrollPane);
+		panes.add(m_ResultScrollPane);
 		m_ResultLabel = new JLabel("");
 		m_ResultLabel.setFont(new Font("΢ź", Font.PLAIN, 13));
 		m_ResultScrollPane.setColumnHeaderView(m_ResultLabel);
@@ -191,6 +384,20 @@ public class MainFrame extends JFrame {
 		m_Result.setEditable(false);
 		m_ResultScrollPane.setViewportView(m_Result);
 
+		m_Status = new JLabel("");
+		m_Status.setFont(new Font("΢ź", Font.PLAIN, 13));
+		m_ProgressBar = new JProgressBar(0, 100);
+		m_Cancel = new JButton("ȡ");
+		m_Cancel.setEnabled(false);
+
+		JPanel progress = new JPanel(new BorderLayout(4, 0));
+		progress.add(m_ProgressBar, BorderLayout.CENTER);
+		progress.add(m_Cancel, BorderLayout.EAST);
+		JPanel statusBar = new JPanel(new BorderLayout(8, 0));
+		statusBar.add(m_Status, BorderLayout.CENTER);
+		statusBar.add(progress, BorderLayout.EAST);
+		add(statusBar, BorderLayout.SOUTH);
+
 		m_Data = new JMenu("");
 		m_Set = new JMenu("");
 		m_Analyze = new JMenu("ھ");
@@ -199,6 +406,9 @@ public class MainFrame extends JFrame {
 		m_Open = new JMenuItem("ݵ");
 		m_Pretreatment = new JMenuItem("Ԥ");
 		m_MiningOptions = new JMenuItem("ھ");
+		m_SaveSnapshot = new JCheckBoxMenuItem("ݿ");
+		m_SaveSnapshot.setToolTipText("ļԱ " + Snapshot.EXTENSION
+				+ " գδıʱٴε뽫ȡ");
 		m_LargeItemSets = new JMenuItem("Ƶ");
 		m_AssociationRules = new JMenuItem("ɹ");
 		m_AssociationAnalysis = new JMenuItem("ھ");
@@ -208,6 +418,7 @@ public class MainFrame extends JFrame {
 		m_Data.add(m_Open);
 		m_Data.add(m_Pretreatment);
 		m_Set.add(m_MiningOptions);
+		m_Set.add(m_SaveSnapshot);
 		m_Analyze.add(m_LargeItemSets);
 		m_Analyze.add(m_AssociationRules);
 		m_Analyze.add(m_AssociationAnalysis);
@@ -230,17 +441,20 @@ public class MainFrame extends JFrame {
 				FileNameExtensionFilter filter = new FileNameExtensionFilter(
 						".txt", "txt");
 				fileChooser.addChoosableFileFilter(filter);
+				fileChooser.addChoosableFileFilter(new FileNameExtensionFilter(
+						Snapshot.EXTENSION, Snapshot.EXTENSION.substring(1)));
 				fileChooser.setAcceptAllFileFilterUsed(true);
 
 				if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
 					clear();
-					m_Apriori = new Apriori(new org.java.apriori.TxtReader(
-							fileChooser.getSelectedFile()));
+					File file = fileChooser.getSelectedFile();
+					TxtReader txtReader = m_SaveSnapshot.isSelected() ? Snapshot
+							.open(file, TxtReader.MODE_STREAM) : new TxtReader(file);
+					m_Apriori = new Apriori(txtReader);
 					m_AttributeNames = m_Apriori.attributesToStringArray();
-					m_TableData = m_Apriori.instancesToObjectArray();
-					m_ColumnNames = m_Apriori.attributesToStringArray();
+					m_TableModel = new InstancesTableModel(m_Apriori);
 
-					createTable(m_TableData, m_ColumnNames);
+					createTable(m_TableModel);
 
 					m_AssociationRules.setEnabled(false);
 					
@@ -250,6 +464,11 @@ public class MainFrame extends JFrame {
 					m_AssociationAnalysis.setEnabled(true);
 
 					printInformation(m_Apriori.information());
+
+					if (m_SaveSnapshot.isSelected()) {
+						m_Status.setText("ڱ...");
+						new SnapshotWorker(txtReader).execute();
+					}
 				}
 			}
 		});
@@ -259,10 +478,14 @@ public class MainFrame extends JFrame {
 				if (m_AttributeNames != null) {
 					new PretreatDialog(m_Frame, m_AttributeNames);
 					m_Apriori.chooseAttributes(PretreatDialog.m_Selected);
-					m_Apriori.setPretreatOptions(PretreatDialog.m_Pretreat);
-					m_TableData = m_Apriori.pretreatInstancesToObjectArray();
-					m_ColumnNames = m_Apriori.chooseAttributesToStringArray();
-					createTable(m_TableData, m_ColumnNames);
+					try {
+						m_Apriori.setPretreatOptions(PretreatDialog.m_Pretreat);
+					} catch (IllegalArgumentException ex) {
+						JOptionPane.showMessageDialog(null, ex.getMessage(),
+								"Ԥ", JOptionPane.ERROR_MESSAGE);
+					}
+					m_TableModel = new InstancesTableModel(m_Apriori);
+					createTable(m_TableModel);
 					
 					m_AssociationRules.setEnabled(false);
 					
@@ -280,26 +503,29 @@ public class MainFrame extends JFrame {
 
 		m_LargeItemSets.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				m_Apriori.findLargeItemSets();
-				
-				m_AssociationRules.setEnabled(true);
-				
-				printInformation(m_Apriori.lsToString());
+				mine(true, false);
 			}
 		});
 
 		m_AssociationRules.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				m_Apriori.findAssociationsRules();
-				printInformation(m_Apriori.ruleSetToString());
+				mine(false, true);
 			}
 		});
 
 		m_AssociationAnalysis.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
-				m_Apriori.findLargeItemSets();
-				m_Apriori.findAssociationsRules();
-				printInformation(m_Apriori.toString());
+				mine(true, true);
+			}
+		});
+
+		m_Cancel.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				if (m_Token != null) {
+					m_Token.cancel();
+					m_Cancel.setEnabled(false);
+					m_Status.setText("ȡ...");
+				}
 			}
 		});
 
@@ -324,6 +550,95 @@ public class MainFrame extends JFrame {
 		OptionDialog.m_Options = null;
 	}
 
+	/**
+	 * Starts mining in the background, the menus disabled until it ends.
+	 * 
+	 * @param findLargeItemSets
+	 *            whether the large itemsets are found
+	 * @param findRules
+	 *            whether the association rules are found
+	 */
+	private void mine(boolean findLargeItemSets, boolean findRules) {
+
+		MiningWorker worker = new MiningWorker(findLargeItemSets, findRules);
+		m_Token = new CancellationToken();
+		m_Apriori.setCancellationToken(m_Token);
+		m_Apriori.setMiningListener(worker);
+
+		m_Data.setEnabled(false);
+		m_Set.setEnabled(false);
+		m_Analyze.setEnabled(false);
+		m_Cancel.setEnabled(true);
+		m_ProgressBar.setIndeterminate(true);
+		m_Status.setText("ھ...");
+
+		worker.execute();
+	}
+
+	/**
+	 * Ends mining, the menus enabled again.
+	 */
+	private void endMining() {
+
+		m_Apriori.setCancellationToken(null);
+		m_Apriori.setMiningListener(null);
+		m_Token = null;
+
+		m_Data.setEnabled(true);
+		m_Set.setEnabled(true);
+		m_Analyze.setEnabled(true);
+		m_Cancel.setEnabled(false);
+		m_ProgressBar.setIndeterminate(false);
+		m_ProgressBar.setValue(0);
+		m_Status.setText("");
+	}
+
+	/**
+	 * Shows the progress of the mining in the status bar. The progress bar
+	 * shows the instances scanned while the candidates of a level are
+	 * counted.
+	 * 
+	 * @param phase
+	 *            the phase
+	 * @param level
+	 *            the level, 0 if none
+	 * @param numCandidates
+	 *            the number of candidates
+	 * @param numRowsScanned
+	 *            the number of instances scanned
+	 */
+	private void showProgress(String phase, int level, long numCandidates,
+			long numRowsScanned) {
+
+		String text;
+		if (MiningMetrics.PHASE_GENERATION.equals(phase))
+			text = "ɺѡ";
+		else if (MiningMetrics.PHASE_COUNTING.equals(phase))
+			text = "";
+		else if (MiningMetrics.PHASE_RULES.equals(phase))
+			text = "ɹ";
+		else
+			text = "Ƶ";
+
+		if (level > 0)
+			text = " " + level + "  " + text;
+		if (numCandidates > 0)
+			text += (MiningMetrics.PHASE_RULES.equals(phase) ? "  Ƶ: "
+					: "  ѡ: ") + numCandidates;
+		if (numRowsScanned > 0)
+			text += "  ɨ: " + numRowsScanned + " ";
+		m_Status.setText(text);
+
+		if (MiningMetrics.PHASE_COUNTING.equals(phase)
+				&& m_TableModel.getRowCount() > 0) {
+			m_ProgressBar.setIndeterminate(false);
+			m_ProgressBar.setValue((int) Math.min(100, 100 * numRowsScanned
+					/ m_TableModel.getRowCount()));
+		} else {
+			m_ProgressBar.setIndeterminate(true);
+		}
+	}
+
 	/**
 	 * Prints information with style.
 	 * 
@@ -339,16 +654,15 @@ public class MainFrame extends JFrame {
 	}
 
 	/**
-	 * Creates data table
+	 * Creates data table. The widths of the columns are measured on the
+	 * first row only.
 	 * 
-	 * @param tableData
-	 *            the table data
-	 * @param columnNames
-	 *            the columns names
+	 * @param tableModel
+	 *            the table model
 	 */
-	private void createTable(Object[][] tableData, String[] columnNames) {
+	private void createTable(TableModel tableModel) {
 
-		m_Table = new DataTable(tableData, columnNames);
+		m_Table = new DataTable(tableModel);
 		TableColumnModel tcm = m_Table.getColumnModel();
 
 		for (int i = 0; i < tcm.getColumnCount(); i++) {
@@ -358,12 +672,14 @@ public class MainFrame extends JFrame {
 					.getTableCellRendererComponent(m_Table,
 							tcm.getColumn(i).getIdentifier(), false, false, -1,
 							i).getPreferredSize().getWidth();
-			int preferedWidth = (int) m_Table
-					.getCellRenderer(0, i)
-					.getTableCellRendererComponent(m_Table,
-							m_Table.getValueAt(0, i), false, false, 0, i)
-							.getPreferredSize().getWidth();
-			width = Math.max(width, preferedWidth);
+			if (m_Table.getRowCount() > 0) {
+				int preferedWidth = (int) m_Table
+						.getCellRenderer(0, i)
+						.getTableCellRendererComponent(m_Table,
+								m_Table.getValueAt(0, i), false, false, 0, i)
+						.getPreferredSize().getWidth();
+				width = Math.max(width, preferedWidth);
+			}
 			m_Table.getColumnModel().getColumn(i).setMinWidth(width + 4);
 		}
 